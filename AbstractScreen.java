@@ -4,12 +4,18 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashMap;
-import java.util.Objects;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.FocusManager;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -22,6 +28,8 @@ import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.SpinnerModel;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.text.DefaultCaret;
 
@@ -95,27 +103,39 @@ public abstract class AbstractScreen
     }
   }
 
-  private static class HashableButton extends JButton {
+  /**
+   * Which thread button handlers run on
+   *
+   * @author milind
+   */
+  protected static enum HandlerThread {
+    /**
+     * Run handlers on the Event Dispatch Thread, which can't repaint until they return
+     */
+    EDT,
+    /**
+     * Run handlers on a background thread, and run a handler once more after it
+     * finishes instead of once per click if its button is clicked while it's running
+     */
+    BACKGROUND
+  }
 
-    private static final long serialVersionUID = 1L;
+  /**
+   * Button that keeps the function to call when it's clicked
+   */
+  private static class HandlerButton extends JButton {
 
-    private static int instances = 0;
+    private static final long serialVersionUID = 1L;
 
-    private final int id;
+    private final transient Runnable onClick;
+    /**
+     * Clicks since the background handler last started, or 0 if it isn't running
+     */
+    private final transient AtomicInteger clicks = new AtomicInteger();
 
-    public HashableButton(String text) {
+    public HandlerButton(String text, Runnable onClick) {
       super(text);
-      id = instances++;
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-      return (obj.getClass() == getClass()) && (((HashableButton)obj).id == id);
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(id);
+      this.onClick = onClick;
     }
   }
 
@@ -190,14 +210,29 @@ public abstract class AbstractScreen
    */
   protected static final Color BUTTON_COLOR = new Color(0xbaffc9);
 
+  /**
+   * Threads that background button handlers run on
+   */
+  private static final ExecutorService HANDLERS = Executors.newCachedThreadPool(r -> {
+    final var thread = new Thread(r, "swinglib-button-handler");
+    thread.setDaemon(true);
+    return thread;
+  });
+
   /**
    * Title of the screen
    */
   private final String title;
   /**
-   * Map containing all buttons and functions to call on clicks
+   * Title drawn over the background, which never changes, so it is drawn once
+   * and copied on each repaint. Only used on the EDT.
+   */
+  private transient Image titleImage = null;
+  /**
+   * Pixels that the title covers
    */
-  private final HashMap<HashableButton, Runnable> onClicks;
+  private transient Rectangle titleBounds = null;
+  private volatile HandlerThread handlerThread = HandlerThread.EDT;
 
   /**
    * Creates a screen with the given title.
@@ -208,7 +243,6 @@ public abstract class AbstractScreen
     setLayout(null);
 
     this.title = title;
-    onClicks = new HashMap<>();
   }
 
   /**
@@ -319,7 +353,7 @@ public abstract class AbstractScreen
    */
   protected JButton newButton(String text, Font font, Bounds bounds,
                               Runnable onClick) {
-    final var jb = new HashableButton(text);
+    final var jb = new HandlerButton(text, onClick);
     jb.setBounds(bounds);
     jb.setFont(font);
     jb.setBackground(BUTTON_COLOR);
@@ -327,11 +361,21 @@ public abstract class AbstractScreen
     add(jb);
     jb.addActionListener(this);
 
-    onClicks.put(jb, onClick);
-
     return jb;
   }
 
+  /**
+   * Removes a button from the screen. The screen keeps no other references to it,
+   * so it can be garbage collected afterwards.
+   *
+   * @param jb Button to remove
+   */
+  protected void removeButton(JButton jb) {
+    jb.removeActionListener(this);
+    remove(jb);
+    repaint(jb.getBounds());
+  }
+
   /**
    * Creates a button with <code>Fonts.MEDIUM</code>
    *
@@ -492,6 +536,39 @@ public abstract class AbstractScreen
     return new Pair<>(jta, jsp);
   }
 
+  /**
+   * Creates a scrollable text area for a live stream of lines, such as a log,
+   * that only keeps the last lines and can be added to from any thread
+   *
+   * @param font Text area font
+   * @param bounds Bounding box of the area
+   * @param maxLines Most lines to keep
+   * @return The created text area and scroll pane
+   */
+  protected Pair<StreamingTextArea, JScrollPane>
+  newStreamingTextArea(Font font, Bounds bounds, int maxLines) {
+    final var sta = new StreamingTextArea(font, maxLines);
+    final var jsp = new JScrollPane(sta);
+    jsp.setBounds(bounds);
+    add(jsp);
+    return new Pair<>(sta, jsp);
+  }
+
+  /**
+   * Creates a scrollable console that shows log lines, colored by severity.
+   * Lines are only shown once the console is added with <code>Log.addSink</code>.
+   *
+   * @param font Console font
+   * @param bounds Bounding box of the console
+   * @param maxLines Most lines to keep
+   * @return The created console and scroll pane
+   */
+  protected Pair<LogConsole, JScrollPane> newLogConsole(Font font, Bounds bounds,
+                                                        int maxLines) {
+    final var area = newStreamingTextArea(font, bounds, maxLines);
+    return new Pair<>(new LogConsole(area.getFirst()), area.getSecond());
+  }
+
   /**
    * Creates a spinner with a label
    *
@@ -535,7 +612,22 @@ public abstract class AbstractScreen
    */
   protected Triplet<JTable, DefaultTableModel, JScrollPane>
   newTable(Font font, Bounds bounds, Object... cols) {
-    final var table = initTable(font, bounds, cols);
+    return newTable(font, bounds, (DefaultTableModel)new TableModel(cols));
+  }
+
+  /**
+   * Creates a scrollable table that shows the given model, such as a
+   * <code>BulkTableModel</code> for tables with many rows
+   *
+   * @param <M> Class of the table model
+   * @param font Table font
+   * @param bounds Bounding box of the table
+   * @param model Model holding the table's data
+   * @return The created table, along with it's model and scroll pane
+   */
+  protected <M extends AbstractTableModel> Triplet<JTable, M, JScrollPane>
+  newTable(Font font, Bounds bounds, M model) {
+    final var table = initTable(font, bounds, model);
     add(table.getThird());
     return table;
   }
@@ -553,7 +645,26 @@ public abstract class AbstractScreen
   protected Triplet<JTable, DefaultTableModel, LabeledComponent<JScrollPane>>
   newLabeledTable(Font font, Font labelFont, String label, Bounds bounds,
                   Object... cols) {
-    final var table = initTable(font, bounds, cols);
+    return newLabeledTable(font, labelFont, label, bounds,
+                           (DefaultTableModel)new TableModel(cols));
+  }
+
+  /**
+   * Creates a scrollable table with a label that shows the given model
+   *
+   * @param <M> Class of the table model
+   * @param font Table font
+   * @param labelFont Label font
+   * @param label Table label
+   * @param bounds Bounding box of the table
+   * @param model Model holding the table's data
+   * @return The created table, along with it's model and labeled scroll pane
+   */
+  protected <M extends AbstractTableModel>
+  Triplet<JTable, M, LabeledComponent<JScrollPane>>
+  newLabeledTable(Font font, Font labelFont, String label, Bounds bounds,
+                  M model) {
+    final var table = initTable(font, bounds, model);
     return new Triplet<>(
         table.getFirst(), table.getSecond(),
         new LabeledComponent<>(
@@ -563,10 +674,41 @@ public abstract class AbstractScreen
             bounds.y - LabeledComponent.bufferedStringHeight(labelFont)));
   }
 
-  private Triplet<JTable, DefaultTableModel, JScrollPane>
-  initTable(Font font, Bounds bounds, Object... cols) {
-    final var tm = new TableModel(cols);
+  /**
+   * Creates a scrollable table that loads rows from a source as they are scrolled to,
+   * so tables with millions of rows don't need them all in memory
+   *
+   * @param font Table font
+   * @param bounds Bounding box of the table
+   * @param source Source to fetch rows from
+   * @param cacheRows Most rows to keep in memory
+   * @param cols Column labels of the table
+   * @return The created table, along with it's model and scroll pane
+   */
+  protected Triplet<JTable, PagedTableModel, JScrollPane>
+  newPagedTable(Font font, Bounds bounds, PagedTableModel.Source source,
+                int cacheRows, Object... cols) {
+    return newTable(font, bounds, new PagedTableModel(source, cacheRows, cols));
+  }
+
+  /**
+   * Lets a table be sorted by clicking its column headers, and filtered with the
+   * returned sorter. Rows added later are kept in order without sorting every row again.
+   * Not meant for paged tables, whose rows aren't all loaded.
+   *
+   * @param <M> Class of the table model
+   * @param table Table created by <code>newTable</code> or <code>newLabeledTable</code>
+   * @return The table's sorter
+   */
+  protected static <M extends AbstractTableModel> IncrementalRowSorter<M>
+  makeSortable(Triplet<JTable, M, ?> table) {
+    final var sorter = new IncrementalRowSorter<>(table.getSecond());
+    table.getFirst().setRowSorter(sorter);
+    return sorter;
+  }
 
+  private <M extends AbstractTableModel> Triplet<JTable, M, JScrollPane>
+  initTable(Font font, Bounds bounds, M tm) {
     final var jt = new JTable(tm);
     jt.setRowSelectionAllowed(false);
     jt.getTableHeader().setFont(font);
@@ -606,14 +748,102 @@ public abstract class AbstractScreen
 
   @Override
   public void paintComponent(Graphics g) {
-    super.paintComponent(g);
+    final boolean timed = Metrics.isEnabled();
+    final long start = timed ? System.nanoTime() : 0;
+    final var area = new Rectangle(0, 0, WIDTH, HEIGHT);
+    final var clip = g.getClipBounds();
+    // The background covers everything the panel would fill inside it
+    if ((clip == null) || !area.contains(clip)) {
+      super.paintComponent(g);
+    }
 
     g.setColor(BG_COLOR);
     g.fillRect(0, 0, WIDTH, HEIGHT);
+    paintTitle(g, (clip != null) ? clip : area);
+    if (timed) {
+      Metrics.PAINT_NANOS.recordSince(start);
+    }
+  }
+
+  @Override
+  public void removeNotify() {
+    flushTitle();
+    super.removeNotify();
+  }
+
+  /**
+   * Copies the part of the cached title that needs repainting, drawing it
+   * again first if the cache is missing or was lost
+   */
+  private void paintTitle(Graphics g, Rectangle clip) {
+    if (titleBounds == null) {
+      // Same text settings as the image's graphics, so the bounds fit the drawn pixels
+      final var frc = new FontRenderContext(null, false, false);
+      final int x = (WIDTH - TextMetrics.stringWidth(Fonts.EXTRA_LARGE, frc, title)) / 2;
+      titleBounds = Fonts.EXTRA_LARGE.createGlyphVector(frc, title)
+          .getPixelBounds(frc, x, HEIGHT / 7);
+    }
+    final var damaged = titleBounds.intersection(clip);
+    final var config = getGraphicsConfiguration();
+    if (damaged.isEmpty()) {
+      return;
+    }
+
+    if (config == null) {
+      // Not on a screen yet, such as when painting headless
+      if (!(titleImage instanceof BufferedImage)) {
+        flushTitle();
+        titleImage = new BufferedImage(titleBounds.width, titleBounds.height,
+                                       BufferedImage.TYPE_INT_RGB);
+        drawTitle(titleImage);
+      }
+      copyTitle(g, damaged);
+    } else {
+      var image = (titleImage instanceof VolatileImage) ? (VolatileImage)titleImage : null;
+      do {
+        final int status = (image != null) ? image.validate(config)
+                                           : VolatileImage.IMAGE_INCOMPATIBLE;
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+          flushTitle();
+          image = config.createCompatibleVolatileImage(titleBounds.width,
+                                                       titleBounds.height);
+          titleImage = image;
+        }
+        if (status != VolatileImage.IMAGE_OK) {
+          drawTitle(image);
+        }
+        copyTitle(g, damaged);
+      } while (image.contentsLost());
+    }
+  }
+
+  private void drawTitle(Image image) {
+    final var g = image.getGraphics();
+    try {
+      g.setColor(BG_COLOR);
+      g.fillRect(0, 0, titleBounds.width, titleBounds.height);
+      g.translate(-titleBounds.x, -titleBounds.y);
+      g.setColor(Color.DARK_GRAY);
+      g.setFont(Fonts.EXTRA_LARGE);
+      drawStringCentered(g, title, HEIGHT / 7);
+    } finally {
+      g.dispose();
+    }
+  }
+
+  private void copyTitle(Graphics g, Rectangle damaged) {
+    final int sx = damaged.x - titleBounds.x;
+    final int sy = damaged.y - titleBounds.y;
+    g.drawImage(titleImage, damaged.x, damaged.y, damaged.x + damaged.width,
+                damaged.y + damaged.height, sx, sy, sx + damaged.width,
+                sy + damaged.height, null);
+  }
 
-    g.setColor(Color.DARK_GRAY);
-    g.setFont(Fonts.EXTRA_LARGE);
-    drawStringCentered(g, title, HEIGHT / 7);
+  private void flushTitle() {
+    if (titleImage != null) {
+      titleImage.flush();
+      titleImage = null;
+    }
   }
 
   /**
@@ -624,21 +854,109 @@ public abstract class AbstractScreen
    * @param y The y at the bottom of the drawn string
    */
   protected final void drawStringCentered(Graphics g, String s, int y) {
-    final var metrics = g.getFontMetrics(g.getFont());
-    final int x = (WIDTH - metrics.stringWidth(s)) / 2;
+    final int x = (WIDTH - TextMetrics.stringWidth(g, s)) / 2;
     g.drawString(s, x, y);
   }
 
   @Override
   public void actionPerformed(ActionEvent e) {
-    final var r = onClicks.get(e.getSource());
-    // Make sure that the key was a button with an on click, and was not mapped
-    // to a null Runnable
+    // Make sure that the source was a button with an on click,
+    // and that the on click isn't null
+    final var r = (e.getSource() instanceof HandlerButton)
+        ? ((HandlerButton)e.getSource()).onClick : null;
     if (r != null) {
+      if (handlerThread == HandlerThread.BACKGROUND) {
+        final var jb = (HandlerButton)e.getSource();
+        if (jb.clicks.getAndIncrement() == 0) {
+          HANDLERS.execute(() -> runInBackground(jb, r));
+        }
+      } else {
+        runOnEdt(r);
+      }
+    }
+  }
+
+  private static void runOnEdt(Runnable r) {
+    final var watchdog = EdtWatchdog.current();
+    final boolean timed = Metrics.isEnabled();
+    if ((watchdog != null) || timed) {
+      final long start = System.nanoTime();
+      if (watchdog != null) {
+        watchdog.started(start);
+      }
+      try {
+        r.run();
+      } finally {
+        if (watchdog != null) {
+          watchdog.finished(start);
+        }
+        if (timed) {
+          Metrics.ACTION_NANOS.recordSince(start);
+        }
+      }
+    } else {
       r.run();
     }
   }
 
+  private static void runInBackground(HandlerButton jb, Runnable r) {
+    int seen;
+    // Run again if the button was clicked while running, until a run sees every click
+    do {
+      seen = jb.clicks.get();
+      final long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+      try {
+        r.run();
+      } catch (RuntimeException | Error ex) {
+        jb.clicks.set(0);
+        throw ex;
+      }
+      if (start != 0) {
+        Metrics.ACTION_NANOS.recordSince(start);
+      }
+    } while (!jb.clicks.compareAndSet(seen, 0));
+  }
+
+  /**
+   * Sets which thread subsequent button clicks run their handlers on.
+   * Defaults to <code>HandlerThread.EDT</code>. Background handlers can update the
+   * screen with <code>updateUi</code>.
+   *
+   * @param thread Thread to run handlers on
+   */
+  protected void setHandlerThread(HandlerThread thread) {
+    handlerThread = thread;
+  }
+
+  /**
+   * Runs a UI update on the Event Dispatch Thread. Swing components should only be
+   * changed on the EDT, so background handlers should change them through this.
+   * Runs the update right away if already on the EDT.
+   *
+   * @param update Update to run
+   */
+  protected static void updateUi(Runnable update) {
+    if (SwingUtilities.isEventDispatchThread()) {
+      update.run();
+    } else {
+      SwingUtilities.invokeLater(update);
+    }
+  }
+
+  /**
+   * Starts watching button handlers for stalls of the Event Dispatch Thread.
+   * When a handler runs longer than the threshold, the EDT's stack is logged as a warning
+   * while the handler is still running, and the handler's total time is logged once it
+   * finishes. Handler times are kept in the <code>swinglib.screen.edt_dispatch_nanos</code>
+   * histogram in <code>Metrics</code>.
+   *
+   * @param threshold How long a handler can run before it's reported,
+   *     or <code>Duration.ZERO</code> to stop watching
+   */
+  public static void setStallThreshold(Duration threshold) {
+    EdtWatchdog.setThreshold(threshold);
+  }
+
   private void initFrame(JFrame jf) {
     jf.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
     jf.pack();
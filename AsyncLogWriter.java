@@ -0,0 +1,189 @@
+package swinglib;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer for asynchronous logging.
+ * Logging threads push formatted lines into a ring buffer, and a single
+ * daemon thread drains them in batches so the callers never wait on console I/O.
+ * The thread sleeps while there is nothing to write, and is woken by the next line.
+ * Sinks decide when to write out what they buffer, as they would for synchronous logs.
+ * @author milind
+ */
+final class AsyncLogWriter implements Runnable {
+
+  private static final class Record {
+    final Log.Severity severity;
+    final String line;
+
+    Record(Log.Severity severity, String line) {
+      this.severity = severity;
+      this.line = line;
+    }
+  }
+
+  /**
+   * Maximum number of records written in one batch
+   */
+  private static final int BATCH_SIZE = 256;
+  /**
+   * How long a blocked producer waits before checking for space again
+   */
+  private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  /**
+   * With <code>OverflowPolicy.SAMPLE</code>, one out of this many droppable
+   * records is kept when the buffer is full
+   */
+  static final int SAMPLE_RATE = 16;
+
+  private final RingBuffer<Record> buffer;
+  private final Log.OverflowPolicy policy;
+  private final Thread thread;
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong overflows = new AtomicLong();
+
+  /**
+   * Number of records that have been written to the sinks
+   */
+  private volatile long written;
+  private volatile boolean running = true;
+  /**
+   * Whether the writer is about to sleep or sleeping, so producers need to wake it
+   */
+  private volatile boolean sleeping = false;
+
+  /**
+   * Creates and starts an asynchronous writer
+   * @param capacity Maximum number of records waiting to be written
+   * @param policy What to do when the buffer is full
+   */
+  AsyncLogWriter(int capacity, Log.OverflowPolicy policy) {
+    buffer = new RingBuffer<>(capacity);
+    this.policy = policy;
+    thread = new Thread(this, "swinglib-log-writer");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a line to be written. Safe to call from any thread.
+   * @param severity Severity of the line
+   * @param line Formatted line, without a line separator
+   */
+  void write(Log.Severity severity, String line) {
+    final var r = new Record(severity, line);
+    if (!buffer.offer(r) && !dropOnOverflow(severity)) {
+      while (!buffer.offer(r)) {
+        if (!thread.isAlive()) {
+          writeDirect(r); // Stopped while we were waiting
+          return;
+        }
+        LockSupport.unpark(thread);
+        LockSupport.parkNanos(BACKOFF_NANOS);
+      }
+    }
+    if (sleeping) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private boolean dropOnOverflow(Log.Severity severity) {
+    boolean drop = false;
+    if (severity.ordinal() < Log.Severity.ERROR.ordinal()) {
+      switch (policy) {
+        case DROP:
+          drop = true;
+          break;
+        case SAMPLE:
+          drop = ((overflows.getAndIncrement() % SAMPLE_RATE) != 0);
+          break;
+        default:
+          break;
+      }
+    }
+    if (drop) {
+      dropped.incrementAndGet();
+    }
+    return drop;
+  }
+
+  /**
+   * Blocks until every line queued before this call has been written to the sinks
+   */
+  void flush() {
+    final long target = buffer.produced();
+    while ((written < target) && thread.isAlive()) {
+      LockSupport.unpark(thread);
+      LockSupport.parkNanos(BACKOFF_NANOS);
+    }
+  }
+
+  /**
+   * Writes everything still queued and stops the writer thread
+   */
+  void stop() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Catch any records pushed while the thread was exiting
+    drain();
+  }
+
+  @Override
+  public void run() {
+    while (running || !buffer.isEmpty()) {
+      if (drain() == 0) {
+        sleeping = true;
+        // Check again once producers can see that we're sleeping, so that a line
+        // queued in between still wakes us
+        if (running && buffer.isEmpty()) {
+          LockSupport.park(this);
+        }
+        sleeping = false;
+      }
+    }
+  }
+
+  private int drain() {
+    final var sinks = Log.sinks();
+    int count = 0;
+    Record r;
+    while ((count < BATCH_SIZE) && ((r = buffer.poll()) != null)) {
+      write(sinks, r);
+      count++;
+    }
+    final long lost = dropped.getAndSet(0);
+    if (lost != 0) {
+      write(sinks, new Record(Log.Severity.WARNING,
+          String.format("[%s] Dropped %d log records", Log.Severity.WARNING, lost)));
+    }
+    if ((count != 0) || (lost != 0)) {
+      for (var sink : sinks) {
+        sink.endBatch();
+      }
+    }
+    written = buffer.consumed();
+    return count;
+  }
+
+  private static void write(Log.Sink[] sinks, Record r) {
+    for (var sink : sinks) {
+      sink.write(r.severity, r.line);
+    }
+  }
+
+  private static void writeDirect(Record r) {
+    final var sinks = Log.sinks();
+    write(sinks, r);
+    for (var sink : sinks) {
+      sink.endBatch();
+    }
+  }
+
+}
@@ -1,21 +1,73 @@
 package swinglib;
 
-import java.io.File;
 import java.io.IOException;
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 /**
  * A class to play audio clips.
+ * Clips are decoded into memory and played through a mixer shared by every clip,
+ * so a clip can overlap itself and no clip holds an audio line of its own.
+ * Decoded clips are shared through <code>SoundCache</code>, so opening a file
+ * that is already open or preloaded doesn't decode it again.
+ * Long tracks such as music can be opened with <code>stream</code> instead,
+ * which decodes them as they play without keeping them in memory.
+ * Clips can be loaded in the background with <code>loadAsync</code> so that
+ * creating them doesn't hold up the screen.
  * 
  * @author milind
  */
-public class Audio {
+public class Audio implements AutoCloseable {
 
-  private final Clip clip;
+  /**
+   * Mixer that every clip plays through, opened when the first clip is played
+   */
+  private static final class DefaultMixer {
+    static final AudioMixer MIXER = open();
+
+    private static AudioMixer open() {
+      AudioMixer mixer = null;
+      try {
+        mixer = new AudioMixer();
+      } catch (LineUnavailableException | IllegalArgumentException e) {
+        e.printStackTrace();
+      }
+      return mixer;
+    }
+  }
+
+  /**
+   * What <code>play</code> does while a clip is still loading
+   * @author milind
+   */
+  public static enum WhileLoading {
+    /**
+     * Play the clip once it has loaded
+     */
+    QUEUE,
+    /**
+     * Ignore the play
+     */
+    DROP
+  }
+
+  private final String path;
+  // Set once when loaded. Guarded by this until then.
+  private volatile AudioMixer.Sound sound;
+  private final AudioStream stream;
+  private final CompletableFuture<Audio> loaded;
+  private final WhileLoading whileLoading;
+  private final AtomicBoolean playQueued = new AtomicBoolean();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  /**
+   * Most recently started voice of this clip
+   */
+  private volatile AudioMixer.Voice voice = null;
+  private volatile boolean looping = false;
 
   /**
    * Creates an audio object with the given file.
@@ -23,34 +75,189 @@ public class Audio {
    * @param path Path to audio file
    */
   public Audio(String path) {
-    clip = getClip(path);
+    this.path = path;
+    sound = getSound(path);
+    stream = null;
+    loaded = CompletableFuture.completedFuture(this);
+    whileLoading = WhileLoading.DROP;
+  }
+
+  private Audio(String path, AudioStream stream) {
+    this.path = path;
+    sound = null;
+    this.stream = stream;
+    loaded = CompletableFuture.completedFuture(this);
+    whileLoading = WhileLoading.DROP;
+  }
+
+  private Audio(String path, WhileLoading whileLoading) {
+    this.path = path;
+    stream = null;
+    this.whileLoading = whileLoading;
+    loaded = CompletableFuture.supplyAsync(this::load, SoundCache.LOADERS);
+  }
+
+  /**
+   * Creates an audio object that loads the given file in the background.
+   * Clips loaded at the same time are decoded in parallel.
+   * 
+   * @param path Path to audio file
+   * @param whileLoading What <code>play</code> does before the clip has loaded
+   * @return The audio object, which can be played right away
+   */
+  public static Audio loadAsync(String path, WhileLoading whileLoading) {
+    return new Audio(path, whileLoading);
+  }
+
+  /**
+   * Loads the given file in the background
+   * 
+   * @param path Path to audio file
+   * @return Future that completes with the audio object once it has loaded,
+   *         or with the error if the file can't be loaded
+   */
+  public static CompletableFuture<Audio> loadAsync(String path) {
+    return loadAsync(path, WhileLoading.DROP).loaded();
+  }
+
+  /**
+   * Returns a future that completes when the clip has loaded
+   * 
+   * @return Future that completes with this object, or with the error if the
+   *         file can't be loaded
+   */
+  public CompletableFuture<Audio> loaded() {
+    return loaded;
+  }
+
+  private Audio load() {
+    final AudioMixer.Sound s;
+    try {
+      s = SoundCache.acquire(path);
+    } catch (IOException | UnsupportedAudioFileException e) {
+      throw new CompletionException(e);
+    }
+    // Open the output line here too rather than on the first play
+    final var mixer = DefaultMixer.MIXER;
+    synchronized (this) {
+      if (closed.get()) {
+        SoundCache.release(path);
+        return this;
+      }
+      sound = s;
+    }
+    if (playQueued.getAndSet(false) && (mixer != null)) {
+      voice = mixer.play(s, 1, looping);
+    }
+    return this;
+  }
+
+  /**
+   * Creates an audio object that streams the given file, decoding it a chunk at a
+   * time on a background thread while it plays.
+   * 
+   * @param path Path to audio file
+   * @return The audio object
+   */
+  public static Audio stream(String path) {
+    AudioStream s = null;
+    try {
+      s = new AudioStream(path);
+    } catch (IOException | UnsupportedAudioFileException e) {
+      e.printStackTrace();
+    }
+    return new Audio(path, s);
   }
 
-  private Clip getClip(String path) {
-    Clip c = null;
+  private AudioMixer.Sound getSound(String path) {
+    AudioMixer.Sound s = null;
     try {
-      c = AudioSystem.getClip();
-      AudioInputStream audio = AudioSystem.getAudioInputStream(new File(path));
-      c.open(audio);
-    } catch (LineUnavailableException | IOException | UnsupportedAudioFileException e) {
+      s = SoundCache.acquire(path);
+    } catch (IOException | UnsupportedAudioFileException e) {
       e.printStackTrace();
     }
-    return c;
+    return s;
   }
 
   /**
-   * Plays the audio clip.
+   * Plays the audio clip from the start, over any earlier plays that are still playing.
    */
   public void play() {
-    clip.start();
-    clip.setFramePosition(0);
+    if ((sound == null) && (stream == null) && !loaded.isDone()
+        && (whileLoading == WhileLoading.QUEUE)) {
+      playQueued.set(true);
+      // Play now if it loaded before the play was queued
+      if ((sound == null) || !playQueued.getAndSet(false)) {
+        return;
+      }
+    }
+    final var mixer = DefaultMixer.MIXER;
+    if ((sound != null) && (mixer != null)) {
+      voice = mixer.play(sound, 1, looping);
+    } else if ((stream != null) && (mixer != null)) {
+      voice = mixer.play(stream, 1, looping);
+    }
+  }
+
+  /**
+   * Stops the most recent play of the clip
+   */
+  public void stop() {
+    final var v = voice;
+    if (v != null) {
+      v.stop();
+    }
+  }
+
+  /**
+   * Moves the most recent play of the clip to another point in it
+   * 
+   * @param position Time from the start of the clip
+   */
+  public void seek(Duration position) {
+    final var v = voice;
+    if (v != null) {
+      v.seek((int) (position.toNanos() * (long) AudioMixer.FORMAT.getFrameRate()
+                    / 1_000_000_000L));
+    }
+  }
+
+  /**
+   * Sets whether the clip starts over when it reaches the end, for the most
+   * recent play and later ones
+   * 
+   * @param looping Whether to loop
+   */
+  public void setLooping(boolean looping) {
+    this.looping = looping;
+    final var v = voice;
+    if (v != null) {
+      v.setLooping(looping);
+    }
   }
 
   /*
    * Returns whether the clip is playing
    */
   public boolean playing() {
-    return clip.isActive();
+    final var v = voice;
+    return (v != null) && v.playing();
+  }
+
+  /**
+   * Releases the decoded clip so the cache can drop it once no other
+   * <code>Audio</code> uses it. Clips that are still playing finish.
+   */
+  @Override
+  public void close() {
+    if (closed.compareAndSet(false, true)) {
+      synchronized (this) {
+        // Clips still loading are released when they finish
+        if (sound != null) {
+          SoundCache.release(path);
+        }
+      }
+    }
   }
 
 }
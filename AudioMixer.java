@@ -0,0 +1,438 @@
+package swinglib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Plays any number of overlapping sounds through a single output line.
+ * Sounds are decoded into memory once, and a high priority thread mixes every
+ * playing voice into one buffer each period and writes it to the output,
+ * so playing a sound only queues a voice and never opens a line.
+ * Long tracks can be streamed instead with <code>AudioStream</code>.
+ * Time from <code>play</code> to the sound reaching the output is recorded
+ * in the <code>swinglib.audio.start_nanos</code> histogram when metrics are enabled.
+ * Output is 16-bit stereo at 44.1 kHz.
+ * @author milind
+ */
+public class AudioMixer implements AutoCloseable {
+
+  /**
+   * Format that sounds are decoded to and mixed in
+   */
+  public static final AudioFormat FORMAT = new AudioFormat(44_100, 16, 2, true, false);
+  /**
+   * Frames mixed at a time, about 5.8 ms
+   */
+  public static final int PERIOD_FRAMES = 256;
+  private static final int CHANNELS = 2;
+  private static final int FRAME_BYTES = 4;
+  /**
+   * Periods that the output line buffers, which bounds the latency
+   */
+  private static final int LINE_PERIODS = 4;
+  private static final int DEFAULT_VOICES = 32;
+
+  /**
+   * Where mixed audio is written
+   * @author milind
+   */
+  public static interface Sink {
+
+    /**
+     * Writes mixed audio, blocking until there is room for it, which paces the mixer.
+     * Sinks that don't play audio, such as for tests, should block for about the
+     * length of the audio so the mixer doesn't run faster than real time.
+     * Called from the mixer thread.
+     * @param buffer 16-bit little-endian stereo samples
+     * @param length Number of bytes to write
+     */
+    void write(byte[] buffer, int length);
+
+    /**
+     * Returns the number of frames written that haven't been played yet
+     * @return Frames waiting to be played
+     */
+    default int queuedFrames() {
+      return 0;
+    }
+  }
+
+  /**
+   * Sound decoded into memory outside the heap, which can be played any number
+   * of times at once
+   * @author milind
+   */
+  public static final class Sound {
+    private final ShortBuffer samples;
+
+    Sound(short[] samples) {
+      this.samples = ByteBuffer.allocateDirect(2 * samples.length)
+          .order(ByteOrder.nativeOrder()).asShortBuffer().put(samples).flip();
+    }
+
+    /**
+     * Returns the length of the sound
+     * @return Number of frames
+     */
+    public int frames() {
+      return samples.limit() / CHANNELS;
+    }
+
+    /**
+     * Returns the memory the samples take
+     */
+    long bytes() {
+      return 2L * samples.capacity();
+    }
+  }
+
+  /**
+   * A sound being played
+   * @author milind
+   */
+  public static final class Voice {
+    private final Sound sound;
+    private final AudioStream.Feeder feeder;
+    private final float volume;
+    private final long playNanos;
+    private final AtomicInteger seekFrame = new AtomicInteger(-1);
+    private volatile boolean looping;
+    // Only used on the mixer thread
+    private int frame = 0;
+    private boolean started = false;
+    private volatile boolean done = false;
+
+    private Voice(Sound sound, AudioStream.Feeder feeder, float volume, boolean looping,
+                  long playNanos) {
+      this.sound = sound;
+      this.feeder = feeder;
+      this.volume = volume;
+      this.looping = looping;
+      this.playNanos = playNanos;
+    }
+
+    /**
+     * Stops playing the sound
+     */
+    public void stop() {
+      done = true;
+      if (feeder != null) {
+        feeder.stop();
+      }
+    }
+
+    /**
+     * Returns whether the sound is still playing
+     * @return Whether the voice is playing
+     */
+    public boolean playing() {
+      return !done;
+    }
+
+    /**
+     * Moves playback to another point in the sound. Has no effect once the voice is done.
+     * @param frame Frame to play from
+     */
+    public void seek(int frame) {
+      Log.checkGe(frame, 0, "Can't seek before the start");
+      if (feeder != null) {
+        feeder.seek(frame);
+      } else {
+        seekFrame.set(frame);
+      }
+    }
+
+    /**
+     * Sets whether the sound starts over when it reaches the end
+     * @param looping Whether to loop
+     */
+    public void setLooping(boolean looping) {
+      this.looping = looping;
+      if (feeder != null) {
+        feeder.setLooping(looping);
+      }
+    }
+  }
+
+  private static final class LineSink implements Sink {
+    private final SourceDataLine line;
+
+    LineSink(SourceDataLine line) {
+      this.line = line;
+    }
+
+    @Override
+    public void write(byte[] buffer, int length) {
+      line.write(buffer, 0, length);
+    }
+
+    @Override
+    public int queuedFrames() {
+      return (line.getBufferSize() - line.available()) / FRAME_BYTES;
+    }
+  }
+
+  private final Sink sink;
+  private final SourceDataLine line;
+  private final ConcurrentLinkedQueue<Voice> triggered = new ConcurrentLinkedQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  // Only used on the mixer thread
+  private final Voice[] voices;
+  private int voiceCount = 0;
+  /**
+   * Voices that started this period and have their start time to record
+   */
+  private final Voice[] started;
+  private int startedCount = 0;
+  private final int[] mix = new int[PERIOD_FRAMES * CHANNELS];
+  private final byte[] out = new byte[PERIOD_FRAMES * FRAME_BYTES];
+
+  /**
+   * Creates a mixer that plays through the default output line
+   * @throws LineUnavailableException If the output line can't be opened
+   */
+  public AudioMixer() throws LineUnavailableException {
+    this(openLine(), null, DEFAULT_VOICES);
+  }
+
+  /**
+   * Creates a mixer that writes to the given sink, such as a byte array for testing
+   * @param sink Sink to write mixed audio to
+   * @param maxVoices Most sounds that can play at once. Playing more stops the oldest.
+   */
+  public AudioMixer(Sink sink, int maxVoices) {
+    this(null, sink, maxVoices);
+  }
+
+  private AudioMixer(SourceDataLine line, Sink sink, int maxVoices) {
+    Log.checkGt(maxVoices, 0, "Mixer needs at least one voice");
+    this.line = line;
+    this.sink = (line != null) ? new LineSink(line) : sink;
+    voices = new Voice[maxVoices];
+    started = new Voice[maxVoices];
+    thread = new Thread(this::run, "swinglib-audio-mixer");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+  }
+
+  private static SourceDataLine openLine() throws LineUnavailableException {
+    final var line = AudioSystem.getSourceDataLine(FORMAT);
+    line.open(FORMAT, LINE_PERIODS * PERIOD_FRAMES * FRAME_BYTES);
+    line.start();
+    return line;
+  }
+
+  /**
+   * Decodes a sound file into memory in the mixer's format.
+   * Use <code>SoundCache</code> instead to share sounds that are opened more than once.
+   * @param path Path to the sound file
+   * @return The decoded sound
+   * @throws IOException If the file can't be read
+   * @throws UnsupportedAudioFileException If the file's format isn't supported
+   */
+  public static Sound load(String path) throws IOException, UnsupportedAudioFileException {
+    try (var in = AudioSystem.getAudioInputStream(new File(path))) {
+      return new Sound(decode(in));
+    }
+  }
+
+  /**
+   * Decodes audio to 16-bit stereo samples at the mixer's sample rate
+   */
+  static short[] decode(AudioInputStream in) throws IOException {
+    var samples = new short[PERIOD_FRAMES * CHANNELS];
+    int frames = 0;
+    try (var reader = new PcmReader(in)) {
+      int read;
+      while ((read = reader.read(samples, frames, (samples.length / CHANNELS) - frames)) > 0) {
+        frames += read;
+        if ((frames * CHANNELS) == samples.length) {
+          samples = Arrays.copyOf(samples, 2 * samples.length);
+        }
+      }
+    }
+    return Arrays.copyOf(samples, frames * CHANNELS);
+  }
+
+  /**
+   * Starts playing a sound at full volume
+   * @param sound Sound to play
+   * @return The playing voice
+   */
+  public Voice play(Sound sound) {
+    return play(sound, 1);
+  }
+
+  /**
+   * Starts playing a sound. Can be called from any thread.
+   * @param sound Sound to play
+   * @param volume Volume to play at, where 1 is the sound's own volume
+   * @return The playing voice
+   */
+  public Voice play(Sound sound, float volume) {
+    return play(sound, volume, false);
+  }
+
+  /**
+   * Starts playing a sound. Can be called from any thread.
+   * @param sound Sound to play
+   * @param volume Volume to play at, where 1 is the sound's own volume
+   * @param looping Whether to start over at the end
+   * @return The playing voice
+   */
+  public Voice play(Sound sound, float volume, boolean looping) {
+    return trigger(new Voice(sound, null, volume, looping, playNanos()));
+  }
+
+  /**
+   * Starts streaming a track, decoding it on a background thread as it plays.
+   * Can be called from any thread.
+   * @param stream Track to play
+   * @param volume Volume to play at, where 1 is the track's own volume
+   * @param looping Whether to start over at the end
+   * @return The playing voice
+   */
+  public Voice play(AudioStream stream, float volume, boolean looping) {
+    return trigger(new Voice(null, new AudioStream.Feeder(stream, looping), volume, looping,
+                             playNanos()));
+  }
+
+  private static long playNanos() {
+    return Metrics.isEnabled() ? System.nanoTime() : 0;
+  }
+
+  private Voice trigger(Voice voice) {
+    triggered.add(voice);
+    return voice;
+  }
+
+  /**
+   * Stops mixing and closes the output line
+   */
+  @Override
+  public void close() {
+    running = false;
+    thread.interrupt();
+    if (line != null) {
+      line.close();
+    }
+  }
+
+  private void run() {
+    while (running) {
+      mix(out);
+      sink.write(out, out.length);
+      if (startedCount != 0) {
+        // This period is heard once the frames queued before it have played
+        final long now = System.nanoTime();
+        final long queued = ((sink.queuedFrames() - PERIOD_FRAMES) * 1_000_000_000L)
+            / (long) FORMAT.getFrameRate();
+        for (int v = 0; v < startedCount; v++) {
+          Metrics.AUDIO_START_NANOS.record((now - started[v].playNanos) + Math.max(0, queued));
+          started[v] = null;
+        }
+        startedCount = 0;
+      }
+    }
+  }
+
+  /**
+   * Mixes the next period of every playing voice
+   * @param buffer Buffer of <code>PERIOD_FRAMES</code> frames to write to
+   */
+  private void mix(byte[] buffer) {
+    Voice voice;
+    while ((voice = triggered.poll()) != null) {
+      if (voiceCount == voices.length) {
+        // Stop the oldest voice to make room
+        voices[0].stop();
+        System.arraycopy(voices, 1, voices, 0, voiceCount - 1);
+        voiceCount--;
+      }
+      voices[voiceCount++] = voice;
+    }
+
+    Arrays.fill(mix, 0);
+    for (int v = 0; v < voiceCount; v++) {
+      mixVoice(voices[v]);
+    }
+    // Remove voices that finished, keeping the rest in the order they started
+    int kept = 0;
+    for (int v = 0; v < voiceCount; v++) {
+      if (!voices[v].done) {
+        voices[kept++] = voices[v];
+      } else {
+        voices[v].stop();
+      }
+    }
+    Arrays.fill(voices, kept, voiceCount, null);
+    voiceCount = kept;
+
+    for (int i = 0; i < mix.length; i++) {
+      final int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+      buffer[2 * i] = (byte) sample;
+      buffer[(2 * i) + 1] = (byte) (sample >> 8);
+    }
+  }
+
+  private void mixVoice(Voice voice) {
+    if (voice.done) {
+      return;
+    }
+    int mixed;
+    if (voice.feeder != null) {
+      mixed = voice.feeder.mix(mix, voice.volume);
+      if (voice.feeder.finished()) {
+        voice.done = true;
+      }
+    } else {
+      if (voice.seekFrame.get() >= 0) {
+        voice.frame = voice.seekFrame.getAndSet(-1);
+      }
+      final var samples = voice.sound.samples;
+      final int frames = voice.sound.frames();
+      final float volume = voice.volume;
+      mixed = 0;
+      while ((mixed < PERIOD_FRAMES) && !voice.done) {
+        final int n = Math.max(0, Math.min(PERIOD_FRAMES - mixed, frames - voice.frame));
+        final int start = voice.frame * CHANNELS;
+        final int offset = (mixed * CHANNELS) - start;
+        for (int i = start; i < (start + (n * CHANNELS)); i++) {
+          mix[i + offset] += (int) (samples.get(i) * volume);
+        }
+        mixed += n;
+        voice.frame += n;
+        if (voice.frame >= frames) {
+          if (voice.looping && (frames > 0)) {
+            voice.frame = 0;
+          } else {
+            voice.done = true;
+          }
+        }
+      }
+    }
+    if ((mixed > 0) && !voice.started) {
+      // Streams are heard once their first chunk is decoded
+      voice.started = true;
+      if ((voice.playNanos != 0) && (startedCount < started.length)) {
+        started[startedCount++] = voice;
+      }
+    }
+  }
+
+}
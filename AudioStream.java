@@ -0,0 +1,227 @@
+package swinglib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Sound file that is decoded a chunk at a time while it plays instead of all at once,
+ * for music and other long tracks. Each playing voice has a thread that decodes ahead
+ * into one chunk while the mixer plays the other, so memory use stays the same no
+ * matter how long the track is.
+ * @author milind
+ */
+public final class AudioStream {
+
+  /**
+   * Frames decoded at a time, about 186 ms
+   */
+  static final int CHUNK_FRAMES = 8192;
+  private static final int CHANNELS = 2;
+
+  private final String path;
+  private final long frames;
+
+  /**
+   * Opens a sound file to stream
+   * @param path Path to the sound file
+   * @throws IOException If the file can't be read
+   * @throws UnsupportedAudioFileException If the file's format isn't supported
+   */
+  public AudioStream(String path) throws IOException, UnsupportedAudioFileException {
+    this.path = path;
+    try (var in = AudioSystem.getAudioInputStream(new File(path))) {
+      final var format = in.getFormat();
+      frames = (in.getFrameLength() == AudioSystem.NOT_SPECIFIED) ? -1
+          : (long) (in.getFrameLength() * AudioMixer.FORMAT.getSampleRate()
+                    / format.getSampleRate());
+    }
+  }
+
+  /**
+   * Returns the length of the track
+   * @return Number of frames, or -1 if the file doesn't say
+   */
+  public long frames() {
+    return frames;
+  }
+
+  private PcmReader open(long frame) throws IOException, UnsupportedAudioFileException {
+    final var reader = new PcmReader(AudioSystem.getAudioInputStream(new File(path)));
+    reader.skip(frame);
+    return reader;
+  }
+
+  /**
+   * Decodes a stream for one voice on its own thread. Chunks are passed to the mixer
+   * and back through queues, so the mixer thread never waits for the decoder.
+   */
+  static final class Feeder {
+
+    private static final class Chunk {
+      final short[] samples = new short[CHUNK_FRAMES * CHANNELS];
+      int frames;
+      /**
+       * Seek generation the chunk was decoded for
+       */
+      int generation;
+      boolean last;
+    }
+
+    private final AudioStream stream;
+    private final ArrayBlockingQueue<Chunk> free = new ArrayBlockingQueue<>(2);
+    private final ArrayBlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(2);
+    private final Thread thread;
+    private volatile boolean looping;
+    private volatile boolean stopped = false;
+    // Guarded by this
+    private long seekFrame = -1;
+    /**
+     * Bumped on every seek so the mixer skips chunks decoded before it
+     */
+    private volatile int generation = 0;
+
+    // Only used on the mixer thread
+    private Chunk current = null;
+    private int offset = 0;
+    private boolean finished = false;
+
+    Feeder(AudioStream stream, boolean looping) {
+      this.stream = stream;
+      this.looping = looping;
+      free.add(new Chunk());
+      free.add(new Chunk());
+      thread = new Thread(this::run, "swinglib-audio-stream");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    synchronized void seek(long frame) {
+      seekFrame = frame;
+      generation++;
+      notifyAll();
+    }
+
+    void setLooping(boolean looping) {
+      this.looping = looping;
+    }
+
+    void stop() {
+      stopped = true;
+      thread.interrupt();
+    }
+
+    /**
+     * Returns whether the last chunk has been mixed or the stream couldn't be decoded.
+     * Called from the mixer thread.
+     */
+    boolean finished() {
+      return finished || (!thread.isAlive() && filled.isEmpty() && (current == null));
+    }
+
+    /**
+     * Adds the next period of decoded audio to a mix. Plays silence for the rest
+     * of the period if the decoder has fallen behind. Called from the mixer thread.
+     * @param mix Stereo samples of the period to add to
+     * @param volume Volume to play at
+     * @return Number of frames added
+     */
+    int mix(int[] mix, float volume) {
+      int mixed = 0;
+      final int periodFrames = mix.length / CHANNELS;
+      while ((mixed < periodFrames) && !finished) {
+        if (current == null) {
+          current = filled.poll();
+          offset = 0;
+          if (current == null) {
+            break;
+          }
+        }
+        if (current.generation != generation) {
+          // Decoded before a seek
+          free.offer(current);
+          current = null;
+          continue;
+        }
+        final int n = Math.min(periodFrames - mixed, current.frames - offset);
+        final var samples = current.samples;
+        for (int i = 0; i < (n * CHANNELS); i++) {
+          mix[(mixed * CHANNELS) + i] += (int) (samples[(offset * CHANNELS) + i] * volume);
+        }
+        mixed += n;
+        offset += n;
+        if (offset == current.frames) {
+          finished = current.last;
+          free.offer(current);
+          current = null;
+        }
+      }
+      return mixed;
+    }
+
+    private void run() {
+      PcmReader reader = null;
+      try {
+        while (!stopped) {
+          final var chunk = free.take();
+          long frame;
+          synchronized (this) {
+            frame = seekFrame;
+            seekFrame = -1;
+            chunk.generation = generation;
+          }
+          if ((reader == null) || (frame >= 0)) {
+            if (reader != null) {
+              reader.close();
+            }
+            reader = stream.open(Math.max(0, frame));
+          }
+
+          chunk.frames = 0;
+          chunk.last = false;
+          boolean rewound = false;
+          while ((chunk.frames < CHUNK_FRAMES) && !chunk.last) {
+            final int read = reader.read(chunk.samples, chunk.frames, CHUNK_FRAMES - chunk.frames);
+            chunk.frames += read;
+            if (read == 0) {
+              // Loop back to the start, unless the track is empty
+              chunk.last = !looping || rewound;
+              if (!chunk.last) {
+                reader.close();
+                reader = stream.open(0);
+                rewound = true;
+              }
+            } else {
+              rewound = false;
+            }
+          }
+          filled.put(chunk);
+
+          if (chunk.last) {
+            // Wait for a seek back into the track
+            synchronized (this) {
+              while ((seekFrame < 0) && !stopped) {
+                wait();
+              }
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        // Stopped
+      } catch (IOException | UnsupportedAudioFileException e) {
+        e.printStackTrace();
+      } finally {
+        if (reader != null) {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            e.printStackTrace();
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,398 @@
+package swinglib;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+
+/**
+ * Compact binary log file.
+ * While set with <code>Log.setBinaryLog</code>, printf-style logs are not formatted.
+ * Instead, each one is written as its severity, timestamp, format id, and raw arguments,
+ * and each call site's format string is only written the first time it is used.
+ * Other logs, and printf-style logs with arguments other than strings and primitive
+ * wrappers, are written as their already formatted text.
+ * Entries are buffered and written like a <code>FileSink</code>'s lines, so they reach
+ * the file within <code>FileSink.COMMIT_INTERVAL</code>, and warnings and errors right away.
+ * Run this class with the file as its argument to decode it back into text.
+ * @author milind
+ */
+public final class BinaryLog implements Closeable {
+
+  private static final int MAGIC = 0x534c4f47; // "SLOG"
+  private static final byte VERSION = 1;
+
+  // Entry tags
+  private static final byte HEADER = 0;
+  private static final byte FORMAT = 1;
+  private static final byte RECORD = 2;
+  private static final byte LINE = 3;
+
+  // Argument tags
+  private static final byte NULL = 0;
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte FLOAT = 4;
+  private static final byte CHAR = 5;
+  private static final byte BOOLEAN = 6;
+  private static final byte BYTE = 7;
+  private static final byte SHORT = 8;
+  private static final byte STRING = 9;
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  /**
+   * A format string that has been written to the file
+   */
+  private static final class Format {
+    final String fmt;
+    final int id;
+
+    Format(String fmt, int id) {
+      this.fmt = fmt;
+      this.id = id;
+    }
+  }
+
+  /**
+   * Per-thread buffers for encoding entries, taken off the thread while in use
+   * in case an argument's <code>toString</code> logs
+   */
+  private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<>();
+
+  private final FileSink file;
+  private final HashMap<LogCallSite, Format> siteFormats = new HashMap<>();
+  /**
+   * Formats logged without a known call site
+   */
+  private final HashMap<String, Format> formats = new HashMap<>();
+  private int nextId = 0;
+
+  /**
+   * Creates a binary log that appends to the given file
+   * @param path Path to the log file
+   * @throws IOException If the file can't be opened
+   */
+  public BinaryLog(String path) throws IOException {
+    file = new FileSink(path);
+    final var bytes = ByteBuffer.allocate(Integer.BYTES + 2);
+    bytes.put(HEADER).putInt(MAGIC).put(VERSION);
+    file.append(bytes.flip());
+  }
+
+  /**
+   * Writes a printf-style log without formatting it
+   * @param severity Severity of the log
+   * @param site Call site of the log, or <code>null</code> if unknown
+   * @param fmt Format string
+   * @param args Arguments to format
+   */
+  void write(Log.Severity severity, LogCallSite site, String fmt, Object[] args) {
+    for (var arg : args) {
+      if (!isEncodable(arg)) {
+        // The decoder couldn't pass it to the format as the same type, so format it now
+        final var header = (site != null) ? site.header(severity) : "[" + severity + "] ";
+        write(severity, header + String.format(fmt, args));
+        return;
+      }
+    }
+    final int id = formatId(site, fmt);
+    final long time = System.currentTimeMillis();
+    var bytes = takeBuffer();
+    while (true) {
+      try {
+        bytes.put(RECORD).put((byte) severity.ordinal()).putLong(time).putInt(id)
+            .putInt(args.length);
+        for (var arg : args) {
+          putArg(bytes, arg);
+        }
+        break;
+      } catch (BufferOverflowException e) {
+        bytes = ByteBuffer.allocate(2 * bytes.capacity());
+      }
+    }
+    file.append(severity, bytes.flip());
+    file.endBatch();
+    buffers.set(bytes);
+  }
+
+  /**
+   * Writes a log that has already been formatted
+   * @param severity Severity of the log
+   * @param line Formatted line, including its header
+   */
+  void write(Log.Severity severity, CharSequence line) {
+    final long time = System.currentTimeMillis();
+    var bytes = takeBuffer();
+    while (true) {
+      try {
+        bytes.put(LINE).put((byte) severity.ordinal()).putLong(time);
+        putString(bytes, line);
+        break;
+      } catch (BufferOverflowException e) {
+        bytes = ByteBuffer.allocate(2 * bytes.capacity());
+      }
+    }
+    file.append(severity, bytes.flip());
+    file.endBatch();
+    buffers.set(bytes);
+  }
+
+  /**
+   * Writes out all buffered entries
+   */
+  public void flush() {
+    file.flush();
+  }
+
+  /**
+   * Writes out all buffered entries and closes the file
+   */
+  @Override
+  public void close() {
+    file.close();
+  }
+
+  /**
+   * Returns the id of the format used at the call site, writing the format if it's new
+   */
+  private synchronized int formatId(LogCallSite site, String fmt) {
+    var format = (site != null) ? siteFormats.get(site) : formats.get(fmt);
+    // Formats are almost always literals, so they can usually be compared by reference
+    if ((format == null) || ((format.fmt != fmt) && !format.fmt.equals(fmt))) {
+      format = new Format(fmt, nextId++);
+      if (site != null) {
+        siteFormats.put(site, format);
+      } else {
+        formats.put(fmt, format);
+      }
+      writeFormat(site, format);
+    }
+    return format.id;
+  }
+
+  private void writeFormat(LogCallSite site, Format format) {
+    var bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+    while (true) {
+      try {
+        bytes.put(FORMAT).putInt(format.id).put((byte) ((site != null) ? 1 : 0));
+        if (site != null) {
+          putString(bytes, String.valueOf(site.getFileName()));
+          bytes.putInt(site.getLineNumber());
+        }
+        putString(bytes, format.fmt);
+        break;
+      } catch (BufferOverflowException e) {
+        bytes = ByteBuffer.allocate(2 * bytes.capacity());
+      }
+    }
+    file.append(bytes.flip());
+  }
+
+  private static ByteBuffer takeBuffer() {
+    var bytes = buffers.get();
+    if (bytes == null) {
+      bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+    } else {
+      buffers.set(null);
+      bytes.clear();
+    }
+    return bytes;
+  }
+
+  /**
+   * Returns whether an argument can be written so that it formats the same when decoded
+   */
+  private static boolean isEncodable(Object arg) {
+    return (arg == null) || (arg instanceof CharSequence) || (arg instanceof Integer)
+           || (arg instanceof Long) || (arg instanceof Double) || (arg instanceof Float)
+           || (arg instanceof Character) || (arg instanceof Boolean) || (arg instanceof Byte)
+           || (arg instanceof Short);
+  }
+
+  private static void putArg(ByteBuffer bytes, Object arg) {
+    if (arg == null) {
+      bytes.put(NULL);
+    } else if (arg instanceof Integer) {
+      bytes.put(INT).putInt((Integer) arg);
+    } else if (arg instanceof Long) {
+      bytes.put(LONG).putLong((Long) arg);
+    } else if (arg instanceof Double) {
+      bytes.put(DOUBLE).putDouble((Double) arg);
+    } else if (arg instanceof Float) {
+      bytes.put(FLOAT).putFloat((Float) arg);
+    } else if (arg instanceof Character) {
+      bytes.put(CHAR).putChar((Character) arg);
+    } else if (arg instanceof Boolean) {
+      bytes.put(BOOLEAN).put((byte) (((Boolean) arg) ? 1 : 0));
+    } else if (arg instanceof Byte) {
+      bytes.put(BYTE).put((Byte) arg);
+    } else if (arg instanceof Short) {
+      bytes.put(SHORT).putShort((Short) arg);
+    } else {
+      // Copied now, since it could change before decoding
+      bytes.put(STRING);
+      putString(bytes, (CharSequence) arg);
+    }
+  }
+
+  private static void putString(ByteBuffer bytes, CharSequence s) {
+    final int length = s.length();
+    bytes.putInt(length);
+    for (int i = 0; i < length; i++) {
+      bytes.putChar(s.charAt(i));
+    }
+  }
+
+  /**
+   * Decodes a binary log into text, in the same format as text logs
+   * @param in Stream to read the binary log from
+   * @param out Stream to print the text log to
+   * @throws IOException If reading fails or the log is corrupt
+   */
+  public static void decode(InputStream in, PrintStream out) throws IOException {
+    final var data = new DataInputStream(new BufferedInputStream(in));
+    final var severities = Log.Severity.values();
+    final var files = new ArrayList<String>();
+    final var lines = new ArrayList<Integer>();
+    final var fmts = new ArrayList<String>();
+    int tag;
+    while ((tag = data.read()) != -1) {
+      switch (tag) {
+        case HEADER:
+          if ((data.readInt() != MAGIC) || (data.readByte() != VERSION)) {
+            throw new IOException("Not a binary log");
+          }
+          // Ids restart whenever a new log is appended to the file
+          files.clear();
+          lines.clear();
+          fmts.clear();
+          break;
+        case FORMAT:
+          final int id = data.readInt();
+          if (id != fmts.size()) {
+            throw new IOException("Unexpected format id " + id);
+          }
+          if (data.readBoolean()) {
+            files.add(readString(data));
+            lines.add(data.readInt());
+          } else {
+            files.add(null);
+            lines.add(null);
+          }
+          fmts.add(readString(data));
+          break;
+        case RECORD:
+          final var severity = severities[data.readByte()];
+          data.readLong(); // Timestamp isn't part of the text format
+          final int formatId = data.readInt();
+          final var args = new Object[data.readInt()];
+          for (int i = 0; i < args.length; i++) {
+            args[i] = readArg(data);
+          }
+          final var file = files.get(formatId);
+          if (file != null) {
+            out.print(LogCallSite.header(severity, file, lines.get(formatId)));
+          } else {
+            out.print("[" + severity + "] ");
+          }
+          try {
+            out.println(String.format(fmts.get(formatId), args));
+          } catch (IllegalFormatException e) {
+            // Print what was logged rather than losing the rest of the file
+            out.println("Can't format \"" + fmts.get(formatId) + "\" with "
+                        + Arrays.toString(args) + ": " + e);
+          }
+          break;
+        case LINE:
+          data.readByte();
+          data.readLong();
+          out.println(readString(data));
+          break;
+        default:
+          throw new IOException("Unknown entry tag " + tag);
+      }
+    }
+  }
+
+  private static Object readArg(DataInputStream data) throws IOException {
+    final int tag = data.readByte();
+    Object arg;
+    switch (tag) {
+      case NULL:
+        arg = null;
+        break;
+      case INT:
+        arg = data.readInt();
+        break;
+      case LONG:
+        arg = data.readLong();
+        break;
+      case DOUBLE:
+        arg = data.readDouble();
+        break;
+      case FLOAT:
+        arg = data.readFloat();
+        break;
+      case CHAR:
+        arg = data.readChar();
+        break;
+      case BOOLEAN:
+        arg = data.readBoolean();
+        break;
+      case BYTE:
+        arg = data.readByte();
+        break;
+      case SHORT:
+        arg = data.readShort();
+        break;
+      case STRING:
+        arg = readString(data);
+        break;
+      default:
+        throw new IOException("Unknown argument tag " + tag);
+    }
+    return arg;
+  }
+
+  private static String readString(DataInputStream data) throws IOException {
+    final int length = data.readInt();
+    final var sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append(data.readChar());
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Decodes a binary log file and prints it as text
+   * @param args Path to the binary log file
+   */
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      System.err.println("Usage: java swinglib.BinaryLog <file>");
+      System.exit(1);
+    }
+    try (var in = new FileInputStream(args[0])) {
+      decode(in, System.out);
+    } catch (EOFException e) {
+      System.err.println("Log ends with a partial entry");
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.exit(1);
+    }
+    System.out.flush();
+  }
+
+}
@@ -0,0 +1,300 @@
+package swinglib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model for adding many rows quickly.
+ * Cells are stored by column instead of by row, and <code>int</code>, <code>long</code>,
+ * and <code>double</code> columns are stored as primitive arrays, so rows don't need
+ * their own objects or boxed values. A batch of rows fires one event instead of one per row.
+ * Rows can be added from any thread. Rows added off the Event Dispatch Thread are
+ * queued and published together on the EDT, so a producer adding rows quickly
+ * only causes a table update every so often.
+ * @author milind
+ */
+public class BulkTableModel extends AbstractTableModel {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Cells of one column
+   */
+  private abstract static class Column {
+    abstract Object get(int row);
+
+    boolean accepts(Object value) {
+      return true;
+    }
+
+    abstract void set(int row, Object value);
+
+    abstract void grow(int capacity);
+  }
+
+  private static final class ObjectColumn extends Column {
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = value;
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class IntColumn extends Column {
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Number;
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = ((Number) value).intValue();
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class LongColumn extends Column {
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Number;
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = ((Number) value).longValue();
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class DoubleColumn extends Column {
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    @Override
+    Object get(int row) {
+      return values[row];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Number;
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = ((Number) value).doubleValue();
+    }
+
+    @Override
+    void grow(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private final String[] names;
+  private final Class<?>[] classes;
+  private final transient Column[] columns;
+  /**
+   * Number of published rows. Only used on the EDT.
+   */
+  private int rows = 0;
+  private int capacity = INITIAL_CAPACITY;
+
+  private final transient Object lock = new Object();
+  /**
+   * Rows added off the EDT that haven't been published yet
+   */
+  private transient ArrayList<Object[]> pending = new ArrayList<>();
+  private boolean publishing = false;
+
+  /**
+   * Creates a table model whose columns can hold any object
+   * @param cols Column labels
+   */
+  public BulkTableModel(Object... cols) {
+    this(cols, new Class<?>[cols.length]);
+  }
+
+  /**
+   * Creates a table model with the given column types.
+   * Columns of <code>int.class</code>, <code>long.class</code>, or <code>double.class</code>
+   * are stored unboxed, and take any <code>Number</code>. Other columns hold any object.
+   * @param cols Column labels
+   * @param types Type of each column, or <code>null</code> for any object
+   */
+  public BulkTableModel(Object[] cols, Class<?>[] types) {
+    Log.checkEq(cols.length, types.length, "Each column needs a type");
+    names = new String[cols.length];
+    classes = new Class<?>[cols.length];
+    columns = new Column[cols.length];
+    for (int c = 0; c < cols.length; c++) {
+      names[c] = String.valueOf(cols[c]);
+      if (types[c] == int.class) {
+        columns[c] = new IntColumn();
+        classes[c] = Integer.class;
+      } else if (types[c] == long.class) {
+        columns[c] = new LongColumn();
+        classes[c] = Long.class;
+      } else if (types[c] == double.class) {
+        columns[c] = new DoubleColumn();
+        classes[c] = Double.class;
+      } else {
+        columns[c] = new ObjectColumn();
+        classes[c] = (types[c] != null) ? types[c] : Object.class;
+      }
+    }
+  }
+
+  /**
+   * Adds a row to the end of the table
+   * @param row Cells of the row, one per column
+   * @throws IllegalArgumentException If the row has the wrong number of cells, or a
+   *                                  number column's cell isn't a <code>Number</code>
+   */
+  public void addRow(Object... row) {
+    addRows(List.<Object[]>of(row));
+  }
+
+  /**
+   * Adds rows to the end of the table, firing a single event for all of them.
+   * Off the EDT, the rows are added on the EDT shortly after, along with any other rows
+   * added before then. Rows are checked before any are added, so a batch with a bad
+   * row adds nothing. Rows must not be changed after they are added.
+   * @param batch Rows to add, each with one cell per column
+   * @throws IllegalArgumentException If a row has the wrong number of cells, or a
+   *                                  number column's cell isn't a <code>Number</code>
+   */
+  public void addRows(List<Object[]> batch) {
+    for (var row : batch) {
+      check(row);
+    }
+    if (SwingUtilities.isEventDispatchThread()) {
+      publish(); // Keep rows in the order they were added
+      append(batch);
+    } else {
+      boolean schedule;
+      synchronized (lock) {
+        pending.addAll(batch);
+        schedule = !publishing;
+        publishing = true;
+      }
+      if (schedule) {
+        SwingUtilities.invokeLater(this::publish);
+      }
+    }
+  }
+
+  /**
+   * Checks a row on the thread adding it, so that the caller gets the error
+   * rather than the EDT
+   */
+  private void check(Object[] row) {
+    if (row.length != columns.length) {
+      throw new IllegalArgumentException("Row has " + row.length + " cells instead of "
+                                         + columns.length);
+    }
+    for (int c = 0; c < columns.length; c++) {
+      if (!columns[c].accepts(row[c])) {
+        throw new IllegalArgumentException("Cell " + c + " must be a number, but is "
+                                           + row[c]);
+      }
+    }
+  }
+
+  /**
+   * Adds queued rows to the table. Must be called on the EDT.
+   */
+  private void publish() {
+    List<Object[]> batch = List.of();
+    synchronized (lock) {
+      if (!pending.isEmpty()) {
+        batch = pending;
+        pending = new ArrayList<>();
+      }
+      publishing = false;
+    }
+    append(batch);
+  }
+
+  private void append(List<Object[]> batch) {
+    if (!batch.isEmpty()) {
+      final int first = rows;
+      if ((rows + batch.size()) > capacity) {
+        capacity = Math.max(rows + batch.size(), 2 * capacity);
+        for (var column : columns) {
+          column.grow(capacity);
+        }
+      }
+      for (var row : batch) {
+        for (int c = 0; c < columns.length; c++) {
+          columns[c].set(rows, row[c]);
+        }
+        rows++;
+      }
+      fireTableRowsInserted(first, rows - 1);
+    }
+  }
+
+  @Override
+  public int getRowCount() {
+    return rows;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return names[column];
+  }
+
+  @Override
+  public Class<?> getColumnClass(int column) {
+    return classes[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    return columns[column].get(row);
+  }
+
+}
@@ -0,0 +1,52 @@
+package swinglib;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+/**
+ * Measures how long passing <code>Log</code> checks take and how much they allocate.
+ * Primitive checks and checks with no message or one message should allocate nothing.
+ * @author milind
+ */
+final class CheckBenchmark {
+
+  private static final int CALLS = 10_000_000;
+  private static final int RUNS = 5;
+
+  private CheckBenchmark() {}
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getCurrentThreadAllocatedBytes();
+  }
+
+  private static void run(String name, IntConsumer check) {
+    double best = Double.MAX_VALUE;
+    double bytes = 0;
+    for (int run = 0; run < RUNS; run++) {
+      final long before = allocatedBytes();
+      final long start = System.nanoTime();
+      for (int i = 0; i < CALLS; i++) {
+        check.accept(i);
+      }
+      best = Math.min(best, (System.nanoTime() - start) / (double) CALLS);
+      bytes = (allocatedBytes() - before) / (double) CALLS;
+    }
+    System.out.printf("%-26s %,8.2f ns/call %,8.2f bytes/call%n", name, best, bytes);
+  }
+
+  /**
+   * Runs the benchmark
+   * @param args Not using command line args
+   */
+  public static void main(String[] args) {
+    final var message = "Check message";
+    run("checkEq(int, int)", i -> Log.checkEq(i, i));
+    run("checkGt(int, int, msg)", i -> Log.checkGt(i + 1, i, message));
+    run("checkLe(long, long)", i -> Log.checkLe((long) i, i + 1L));
+    run("checkEq(double, double)", i -> Log.checkEq(i * 0.5, i / 2.0));
+    run("check(boolean, msg)", i -> Log.check(i >= 0, message));
+    run("checkNotNull(obj, msg)", i -> Log.checkNotNull(message, message));
+  }
+
+}
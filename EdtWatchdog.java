@@ -0,0 +1,129 @@
+package swinglib;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Watches button handlers running on the Event Dispatch Thread for stalls.
+ * Every dispatch is timed into a histogram. A sampler thread checks the running dispatch
+ * a few times per threshold, and when one runs past the threshold it logs the EDT's stack,
+ * so the warning shows where the handler is stuck while it's still stuck.
+ * @author milind
+ */
+final class EdtWatchdog implements Runnable {
+
+  /**
+   * Shortest time the sampler sleeps between checks
+   */
+  private static final long MIN_SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static volatile EdtWatchdog current = null;
+
+  private final long thresholdNanos;
+  private final long sampleNanos;
+  private final Metrics.Histogram dispatches =
+      Metrics.histogram("swinglib.screen.edt_dispatch_nanos");
+  private final Thread sampler;
+  private volatile boolean running = true;
+
+  private volatile Thread edt = null;
+  /**
+   * Number of dispatches started, so the sampler only reports each stall once
+   */
+  private volatile long started = 0;
+  /**
+   * When the running dispatch started, or 0 if none is running
+   */
+  private volatile long startNanos = 0;
+  /**
+   * Last dispatch the sampler reported. Only used by the sampler.
+   */
+  private long reported = 0;
+
+  private EdtWatchdog(Duration threshold) {
+    thresholdNanos = threshold.toNanos();
+    sampleNanos = Math.max(thresholdNanos / 4, MIN_SAMPLE_NANOS);
+    sampler = new Thread(this, "swinglib-edt-watchdog");
+    sampler.setDaemon(true);
+    sampler.start();
+  }
+
+  /**
+   * Returns the running watchdog
+   * @return The watchdog, or <code>null</code> if the EDT isn't being watched
+   */
+  static EdtWatchdog current() {
+    return current;
+  }
+
+  /**
+   * Starts watching dispatches, replacing any running watchdog
+   * @param threshold How long a dispatch can run before it's reported,
+   *                  or <code>Duration.ZERO</code> to stop watching
+   */
+  static synchronized void setThreshold(Duration threshold) {
+    Log.check(!threshold.isNegative(), "Threshold can't be negative");
+    final var old = current;
+    current = threshold.isZero() ? null : new EdtWatchdog(threshold);
+    if (old != null) {
+      old.running = false;
+      LockSupport.unpark(old.sampler);
+    }
+  }
+
+  /**
+   * Called on the EDT when a dispatch starts
+   * @param start Start time from <code>System.nanoTime</code>
+   */
+  void started(long start) {
+    edt = Thread.currentThread();
+    started++; // Only the EDT writes this
+    startNanos = start;
+  }
+
+  /**
+   * Called on the EDT when a dispatch finishes
+   * @param start Start time passed to <code>started</code>
+   */
+  void finished(long start) {
+    startNanos = 0;
+    final long nanos = System.nanoTime() - start;
+    dispatches.record(nanos);
+    if (nanos >= thresholdNanos) {
+      Log.warningf("Button handler blocked the EDT for %.1f ms (p50 %.1f ms, p99 %.1f ms)",
+          nanos / NANOS_PER_MILLI, dispatches.percentile(50) / NANOS_PER_MILLI,
+          dispatches.percentile(99) / NANOS_PER_MILLI);
+    }
+  }
+
+  @Override
+  public void run() {
+    while (running) {
+      LockSupport.parkNanos(sampleNanos);
+      final long start = startNanos;
+      final long dispatch = started;
+      if ((start != 0) && (dispatch != reported)
+          && ((System.nanoTime() - start) >= thresholdNanos)) {
+        reported = dispatch;
+        final var stack = edt.getStackTrace();
+        // Make sure the stack is from the same dispatch
+        if ((startNanos == start) && (started == dispatch)) {
+          report(System.nanoTime() - start, stack);
+        }
+      }
+    }
+  }
+
+  private static void report(long nanos, StackTraceElement[] stack) {
+    final var sb = new StringBuilder();
+    sb.append(String.format("EDT stalled for %.1f ms in a button handler:",
+        nanos / NANOS_PER_MILLI));
+    for (var frame : stack) {
+      sb.append(System.lineSeparator()).append("\tat ").append(frame);
+    }
+    Log.warning(sb);
+  }
+
+}
@@ -0,0 +1,249 @@
+package swinglib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sink that writes log lines to a file.
+ * Lines are copied into a large buffer and written to the file together, either when the
+ * buffer fills up or when a batch ends at least <code>COMMIT_INTERVAL</code> after the last
+ * write, so logging many lines only costs a copy per line instead of a system call.
+ * Lines that wait that long with nothing else logged are written by a background thread,
+ * and warnings and errors are written as soon as their batch ends.
+ * The file can be rotated when it gets too big or too old, in which case it is renamed
+ * to end with the time it was opened and a new file is started.
+ * @author milind
+ */
+public final class FileSink implements Log.Sink, Closeable {
+
+  /**
+   * Size of the buffer lines are collected in before being written
+   */
+  private static final int BUFFER_SIZE = 1 << 20;
+  /**
+   * About the longest time lines stay buffered
+   */
+  public static final Duration COMMIT_INTERVAL = Duration.ofMillis(100);
+  private static final long COMMIT_NANOS = COMMIT_INTERVAL.toNanos();
+  /**
+   * Writes out lines that no later batch has written
+   */
+  private static final ScheduledExecutorService IDLE_COMMITS =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        final var thread = new Thread(r, "swinglib-file-sink");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private static final DateTimeFormatter ROTATED_FORMAT =
+      DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+  private final Path path;
+  private final long maxBytes;
+  private final long maxAgeNanos;
+  private final LineEncoder encoder = new LineEncoder(Charset.defaultCharset());
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  private FileChannel channel;
+  /**
+   * Size of the current file, including buffered bytes
+   */
+  private long size;
+  /**
+   * Size the file is rotated at, which is pushed back when rotating fails
+   */
+  private long rotateBytes;
+  private LocalDateTime opened;
+  private long openedNanos;
+  private long committedNanos;
+  /**
+   * Whether a warning or error is buffered
+   */
+  private boolean urgent = false;
+  private final ScheduledFuture<?> idleCommit;
+
+  /**
+   * Creates a sink that appends to the given file and never rotates it
+   * @param path Path to the log file
+   * @throws IOException If the file can't be opened
+   */
+  public FileSink(String path) throws IOException {
+    this(path, 0, Duration.ZERO);
+  }
+
+  /**
+   * Creates a sink that appends to the given file, rotating it by size and age
+   * @param path Path to the log file
+   * @param maxBytes Size the file is rotated at, or 0 to never rotate by size
+   * @param maxAge Age the file is rotated at, or <code>Duration.ZERO</code> to never
+   *               rotate by age
+   * @throws IOException If the file can't be opened
+   */
+  public FileSink(String path, long maxBytes, Duration maxAge) throws IOException {
+    Log.checkGe(maxBytes, 0L, "Max bytes can't be negative");
+    Log.check(!maxAge.isNegative(), "Max age can't be negative");
+    this.path = Paths.get(path);
+    this.maxBytes = maxBytes;
+    maxAgeNanos = maxAge.toNanos();
+    open();
+    idleCommit = IDLE_COMMITS.scheduleWithFixedDelay(this::endBatch, COMMIT_NANOS, COMMIT_NANOS,
+                                                     TimeUnit.NANOSECONDS);
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    size = channel.size();
+    rotateBytes = maxBytes;
+    opened = LocalDateTime.now();
+    openedNanos = System.nanoTime();
+    committedNanos = openedNanos;
+  }
+
+  @Override
+  public synchronized void write(Log.Severity severity, CharSequence line) {
+    append(severity, encoder.encode(line));
+  }
+
+  /**
+   * Writes bytes that have already been encoded for a log line
+   * @param severity Severity of the line
+   * @param bytes Bytes to write, ready to be read
+   */
+  synchronized void append(Log.Severity severity, ByteBuffer bytes) {
+    append(bytes);
+    if (severity.ordinal() >= Log.Severity.WARNING.ordinal()) {
+      urgent = true;
+    }
+  }
+
+  /**
+   * Writes bytes that have already been encoded
+   * @param bytes Bytes to write, ready to be read
+   */
+  synchronized void append(ByteBuffer bytes) {
+    if (channel == null) {
+      return; // Closed, or failed to reopen after rotating
+    }
+    if (shouldRotate(bytes.remaining())) {
+      rotate();
+      if (channel == null) {
+        return;
+      }
+    }
+    if (buffer.remaining() < bytes.remaining()) {
+      commit();
+    }
+    if (buffer.remaining() < bytes.remaining()) {
+      writeFully(bytes); // Too long to buffer
+    } else {
+      buffer.put(bytes);
+    }
+    size += bytes.limit();
+  }
+
+  @Override
+  public synchronized void endBatch() {
+    if ((buffer.position() != 0)
+        && (urgent || ((System.nanoTime() - committedNanos) >= COMMIT_NANOS))) {
+      commit();
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    commit();
+  }
+
+  /**
+   * Writes out all buffered lines and closes the file.
+   * Lines written afterwards are ignored.
+   */
+  @Override
+  public synchronized void close() {
+    idleCommit.cancel(false);
+    if (channel != null) {
+      commit();
+      closeChannel();
+    }
+  }
+
+  private boolean shouldRotate(int length) {
+    return (((maxBytes != 0) && (size != 0) && ((size + length) > rotateBytes))
+        || ((maxAgeNanos != 0) && ((System.nanoTime() - openedNanos) >= maxAgeNanos)));
+  }
+
+  private void rotate() {
+    commit();
+    closeChannel();
+    boolean moved = false;
+    try {
+      final var name = path.getFileName() + "." + opened.format(ROTATED_FORMAT);
+      var rotated = path.resolveSibling(name);
+      for (int i = 1; Files.exists(rotated); i++) {
+        rotated = path.resolveSibling(name + "." + i);
+      }
+      Files.move(path, rotated);
+      moved = true;
+    } catch (IOException e) {
+      // Such as when another process has the file open on Windows
+      System.err.println("Can't rotate log file " + path + ", so appending to it: " + e);
+    }
+    final var firstOpened = opened;
+    try {
+      open();
+    } catch (IOException e) {
+      System.err.println("Can't reopen log file " + path + ", so dropping its logs: " + e);
+      return;
+    }
+    if (!moved) {
+      // Try again once the file has grown or aged by as much again
+      opened = firstOpened;
+      rotateBytes = size + maxBytes;
+    }
+  }
+
+  private void commit() {
+    if ((channel != null) && (buffer.position() != 0)) {
+      buffer.flip();
+      writeFully(buffer);
+    }
+    buffer.clear();
+    committedNanos = System.nanoTime();
+    urgent = false;
+  }
+
+  private void writeFully(ByteBuffer bytes) {
+    try {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    } catch (IOException e) {
+      // Keep logging to the other sinks rather than failing the caller
+      e.printStackTrace();
+    }
+  }
+
+  private void closeChannel() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    channel = null;
+  }
+
+}
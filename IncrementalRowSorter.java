@@ -0,0 +1,508 @@
+package swinglib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+
+/**
+ * Sorts and filters the rows of a table, keeping rows in place as they are added.
+ * Unlike <code>TableRowSorter</code>, which sorts every row again whenever rows are
+ * added, rows added to the end of the model are sorted on their own and merged
+ * into the rows already shown.
+ * When the sort order or filter changes on a sorted model with at least
+ * <code>BACKGROUND_ROWS</code> rows, the rows are filtered on the Event Dispatch Thread,
+ * since filters don't have to be thread-safe, and then sorted on the common fork-join pool.
+ * The table keeps showing the old rows until the new ones are swapped in on the EDT.
+ * Meant for models that hold their rows in memory. Must only be used on the EDT.
+ * @author milind
+ * @param <M> Class of the table model
+ */
+public class IncrementalRowSorter<M extends TableModel> extends RowSorter<M> {
+
+  /**
+   * Models with at least this many rows are sorted in the background
+   */
+  public static final int BACKGROUND_ROWS = 10_000;
+  /**
+   * Batches of at most this many added rows are inserted one by one,
+   * and larger ones are merged in
+   */
+  private static final int INSERT_ROWS = 16;
+  private static final int MAX_SORT_KEYS = 3;
+
+  /**
+   * Gets cells by model row and column
+   */
+  @FunctionalInterface
+  private static interface Cells {
+    Object get(int row, int column);
+  }
+
+  /**
+   * Filter and sort order that rows are arranged by. Immutable, so it can be
+   * used by a background thread while a new one is set.
+   */
+  private final class Order {
+    final RowFilter<? super M, ? super Integer> filter;
+    final List<? extends SortKey> keys;
+    final Map<Integer, Comparator<?>> comparators;
+
+    Order(RowFilter<? super M, ? super Integer> filter, List<? extends SortKey> keys,
+        Map<Integer, Comparator<?>> comparators) {
+      this.filter = filter;
+      this.keys = keys;
+      this.comparators = comparators;
+    }
+
+    boolean sorted() {
+      return keys.stream().anyMatch(k -> k.getSortOrder() != SortOrder.UNSORTED);
+    }
+
+    boolean include(Cells cells, int row) {
+      return (filter == null) || filter.include(new Entry(cells, row));
+    }
+
+    int compare(Cells cells, int a, int b) {
+      int cmp = 0;
+      for (int i = 0; (i < keys.size()) && (cmp == 0); i++) {
+        final var key = keys.get(i);
+        if (key.getSortOrder() != SortOrder.UNSORTED) {
+          final int column = key.getColumn();
+          cmp = compareValues(column, cells.get(a, column), cells.get(b, column));
+          if (key.getSortOrder() == SortOrder.DESCENDING) {
+            cmp = -cmp;
+          }
+        }
+      }
+      // Keep rows that are equal in model order
+      return (cmp != 0) ? cmp : Integer.compare(a, b);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareValues(int column, Object a, Object b) {
+      int cmp;
+      final var comparator = (Comparator<Object>) comparators.get(column);
+      if ((a == null) || (b == null)) {
+        cmp = (a == b) ? 0 : ((a == null) ? -1 : 1);
+      } else if (comparator != null) {
+        cmp = comparator.compare(a, b);
+      } else if ((a instanceof Comparable) && (a.getClass() == b.getClass())) {
+        cmp = ((Comparable<Object>) a).compareTo(b);
+      } else {
+        cmp = a.toString().compareTo(b.toString());
+      }
+      return cmp;
+    }
+
+    /**
+     * Filters and sorts the first <code>rows</code> rows
+     * @return Model indices of the included rows, in view order
+     */
+    int[] arrange(Cells cells, int rows) {
+      return sort(cells, included(cells, rows), false);
+    }
+
+    /**
+     * Filters the first <code>rows</code> rows. Filters such as
+     * <code>RowFilter.regexFilter</code> aren't thread-safe, so this is only run on the EDT.
+     * @return Model indices of the included rows, in model order
+     */
+    int[] included(Cells cells, int rows) {
+      var stream = IntStream.range(0, rows);
+      if (filter != null) {
+        stream = stream.filter(r -> include(cells, r));
+      }
+      return stream.toArray();
+    }
+
+    /**
+     * Sorts rows, on several threads if <code>parallel</code> is set
+     * @return Model indices of the rows, in view order
+     */
+    int[] sort(Cells cells, int[] rows, boolean parallel) {
+      var arranged = rows;
+      if (sorted()) {
+        final var boxed = Arrays.stream(arranged).boxed().toArray(Integer[]::new);
+        final Comparator<Integer> comparator = (a, b) -> compare(cells, a, b);
+        if (parallel) {
+          Arrays.parallelSort(boxed, comparator);
+        } else {
+          Arrays.sort(boxed, comparator);
+        }
+        arranged = Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+      }
+      return arranged;
+    }
+  }
+
+  private final class Entry extends RowFilter.Entry<M, Integer> {
+    private final Cells cells;
+    private final int row;
+
+    Entry(Cells cells, int row) {
+      this.cells = cells;
+      this.row = row;
+    }
+
+    @Override
+    public M getModel() {
+      return model;
+    }
+
+    @Override
+    public int getValueCount() {
+      return model.getColumnCount();
+    }
+
+    @Override
+    public Object getValue(int index) {
+      return cells.get(row, index);
+    }
+
+    @Override
+    public Integer getIdentifier() {
+      return row;
+    }
+  }
+
+  private final M model;
+  private final Cells modelCells;
+  private final HashMap<Integer, Comparator<?>> comparators = new HashMap<>();
+  /**
+   * Order that was last requested
+   */
+  private Order order;
+  /**
+   * Order that the shown rows are in, which lags behind <code>order</code>
+   * while rows are arranged in the background
+   */
+  private Order viewOrder;
+
+  private int[] viewToModel = new int[0];
+  private int viewRows = 0;
+  private int[] modelToView = new int[0];
+  private int modelRows = 0;
+
+  /**
+   * Incremented when rows change in any way other than being added to the end,
+   * so rows arranged from an older snapshot are thrown away
+   */
+  private int generation = 0;
+  private boolean arranging = false;
+  /**
+   * Rows added while arranging in the background, as model index ranges
+   */
+  private final ArrayList<int[]> added = new ArrayList<>();
+
+  /**
+   * Creates a sorter for the given model, initially unsorted and unfiltered
+   * @param model Model to sort
+   */
+  public IncrementalRowSorter(M model) {
+    this.model = model;
+    modelCells = model::getValueAt;
+    order = new Order(null, List.of(), Map.of());
+    viewOrder = order;
+    setView(order.arrange(modelCells, model.getRowCount()), model.getRowCount());
+  }
+
+  /**
+   * Sets the filter that decides which rows are shown
+   * @param filter Filter to use, or <code>null</code> to show every row
+   */
+  public void setRowFilter(RowFilter<? super M, ? super Integer> filter) {
+    order = new Order(filter, order.keys, order.comparators);
+    arrange();
+  }
+
+  /**
+   * Sets the comparator used to sort a column. Columns without one are sorted by
+   * the natural order of their values, or by their strings if they aren't comparable.
+   * @param column Index of the column
+   * @param comparator Comparator to use, or <code>null</code> for the default
+   */
+  public void setComparator(int column, Comparator<?> comparator) {
+    if (comparator != null) {
+      comparators.put(column, comparator);
+    } else {
+      comparators.remove(column);
+    }
+    order = new Order(order.filter, order.keys, Map.copyOf(comparators));
+    if (order.sorted()) {
+      arrange();
+    }
+  }
+
+  @Override
+  public M getModel() {
+    return model;
+  }
+
+  @Override
+  public void toggleSortOrder(int column) {
+    final var keys = new ArrayList<SortKey>(order.keys);
+    var sortOrder = SortOrder.ASCENDING;
+    if (!keys.isEmpty() && (keys.get(0).getColumn() == column)
+        && (keys.get(0).getSortOrder() == SortOrder.ASCENDING)) {
+      sortOrder = SortOrder.DESCENDING;
+    }
+    keys.removeIf(k -> k.getColumn() == column);
+    keys.add(0, new SortKey(column, sortOrder));
+    setSortKeys(keys.subList(0, Math.min(keys.size(), MAX_SORT_KEYS)));
+  }
+
+  @Override
+  public void setSortKeys(List<? extends SortKey> keys) {
+    order = new Order(order.filter, (keys != null) ? List.copyOf(keys) : List.of(),
+        order.comparators);
+    fireSortOrderChanged();
+    arrange();
+  }
+
+  @Override
+  public List<? extends SortKey> getSortKeys() {
+    return order.keys;
+  }
+
+  @Override
+  public int convertRowIndexToModel(int index) {
+    if ((index < 0) || (index >= viewRows)) {
+      throw new IndexOutOfBoundsException("Invalid view index " + index);
+    }
+    return viewToModel[index];
+  }
+
+  @Override
+  public int convertRowIndexToView(int index) {
+    if ((index < 0) || (index >= modelRows)) {
+      throw new IndexOutOfBoundsException("Invalid model index " + index);
+    }
+    return modelToView[index];
+  }
+
+  @Override
+  public int getViewRowCount() {
+    return viewRows;
+  }
+
+  @Override
+  public int getModelRowCount() {
+    return modelRows;
+  }
+
+  @Override
+  public void modelStructureChanged() {
+    rearrangeNow();
+  }
+
+  @Override
+  public void allRowsChanged() {
+    rearrangeNow();
+  }
+
+  @Override
+  public void rowsInserted(int firstRow, int endRow) {
+    if (firstRow != modelRows) {
+      rearrangeNow(); // Only rows added to the end can be inserted incrementally
+    } else {
+      modelRows = endRow + 1;
+      insert(firstRow, endRow);
+      if (arranging) {
+        // The background arrangement doesn't have these rows, so they're added to it after
+        added.add(new int[] {firstRow, endRow});
+      }
+    }
+  }
+
+  @Override
+  public void rowsDeleted(int firstRow, int endRow) {
+    rearrangeNow();
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow) {
+    if ((viewOrder.filter != null) || viewOrder.sorted()) {
+      rearrangeNow();
+    }
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow, int column) {
+    rowsUpdated(firstRow, endRow);
+  }
+
+  /**
+   * Arranges every row again right away, for when rows change in place
+   */
+  private void rearrangeNow() {
+    generation++;
+    added.clear();
+    final int rows = model.getRowCount();
+    viewOrder = order;
+    fireRowSorterChanged(setView(order.arrange(modelCells, rows), rows));
+  }
+
+  /**
+   * Arranges every row by the current order, in the background if there are many of them
+   */
+  private void arrange() {
+    if (arranging) {
+      return; // Arranged again once the current arrangement is done
+    }
+    final int rows = model.getRowCount();
+    if ((rows < BACKGROUND_ROWS) || !order.sorted()) {
+      viewOrder = order;
+      fireRowSorterChanged(setView(order.arrange(modelCells, rows), rows));
+    } else {
+      arranging = true;
+      final var arrangeOrder = order;
+      final int gen = generation;
+      final var included = arrangeOrder.included(modelCells, rows);
+      // Copy the cells on the EDT, since models aren't thread-safe
+      final int columns = model.getColumnCount();
+      final var snapshot = new Object[columns][rows];
+      for (int c = 0; c < columns; c++) {
+        for (int r = 0; r < rows; r++) {
+          snapshot[c][r] = model.getValueAt(r, c);
+        }
+      }
+      ForkJoinPool.commonPool().execute(() -> {
+        final var arranged = arrangeOrder.sort((r, c) -> snapshot[c][r], included, true);
+        SwingUtilities.invokeLater(() -> arranged(arrangeOrder, gen, rows, arranged));
+      });
+    }
+  }
+
+  private void arranged(Order arrangeOrder, int gen, int rows, int[] arranged) {
+    arranging = false;
+    // Rows that changed in place while arranging were already arranged on the EDT
+    if (gen == generation) {
+      viewOrder = arrangeOrder;
+      final var old = setView(arranged, rows);
+      for (var range : added) {
+        modelRows = range[1] + 1;
+        insert(range[0], range[1]);
+      }
+      fireRowSorterChanged(old);
+    }
+    added.clear();
+    if (viewOrder != order) {
+      arrange(); // Order changed while arranging
+    }
+  }
+
+  /**
+   * Replaces every shown row
+   * @return Model indices of the rows shown before
+   */
+  private int[] setView(int[] arranged, int rows) {
+    final var old = Arrays.copyOf(viewToModel, viewRows);
+    viewToModel = arranged;
+    viewRows = arranged.length;
+    modelRows = rows;
+    modelToView = new int[rows];
+    Arrays.fill(modelToView, -1);
+    for (int v = 0; v < viewRows; v++) {
+      modelToView[viewToModel[v]] = v;
+    }
+    return old;
+  }
+
+  /**
+   * Adds rows from the end of the model to the shown rows
+   */
+  private void insert(int firstRow, int endRow) {
+    var rows = IntStream.rangeClosed(firstRow, endRow);
+    if (viewOrder.filter != null) {
+      rows = rows.filter(r -> viewOrder.include(modelCells, r));
+    }
+    final var inserted = rows.toArray();
+    final boolean sorted = viewOrder.sorted();
+    if (sorted && (inserted.length > 1)) {
+      final var boxed = Arrays.stream(inserted).boxed().toArray(Integer[]::new);
+      Arrays.sort(boxed, (a, b) -> viewOrder.compare(modelCells, a, b));
+      for (int i = 0; i < boxed.length; i++) {
+        inserted[i] = boxed[i];
+      }
+    }
+
+    final int oldViewRows = viewRows;
+    if (viewToModel.length < (viewRows + inserted.length)) {
+      viewToModel = Arrays.copyOf(viewToModel,
+          Math.max(viewRows + inserted.length, 2 * viewToModel.length));
+    }
+    if (modelToView.length < modelRows) {
+      modelToView = Arrays.copyOf(modelToView, Math.max(modelRows, 2 * modelToView.length));
+    }
+    Arrays.fill(modelToView, firstRow, endRow + 1, -1);
+
+    int firstMoved;
+    if (!sorted) {
+      // New rows go at the end, since they're last in the model
+      System.arraycopy(inserted, 0, viewToModel, viewRows, inserted.length);
+      viewRows += inserted.length;
+      firstMoved = oldViewRows;
+    } else if (inserted.length <= INSERT_ROWS) {
+      firstMoved = viewRows;
+      for (int row : inserted) {
+        final int at = insertionPoint(row);
+        System.arraycopy(viewToModel, at, viewToModel, at + 1, viewRows - at);
+        viewToModel[at] = row;
+        viewRows++;
+        firstMoved = Math.min(firstMoved, at);
+      }
+    } else {
+      firstMoved = merge(inserted);
+    }
+    for (int v = firstMoved; v < viewRows; v++) {
+      modelToView[viewToModel[v]] = v;
+    }
+  }
+
+  private int insertionPoint(int row) {
+    int low = 0;
+    int high = viewRows;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (viewOrder.compare(modelCells, viewToModel[mid], row) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Merges sorted rows into the shown rows
+   * @return First view index that changed
+   */
+  private int merge(int[] inserted) {
+    final int first = insertionPoint(inserted[0]);
+    final var tail = Arrays.copyOfRange(viewToModel, first, viewRows);
+    int v = first;
+    int t = 0;
+    int i = 0;
+    while ((t < tail.length) || (i < inserted.length)) {
+      if ((i == inserted.length) || ((t < tail.length)
+          && (viewOrder.compare(modelCells, tail[t], inserted[i]) < 0))) {
+        viewToModel[v++] = tail[t++];
+      } else {
+        viewToModel[v++] = inserted[i++];
+      }
+    }
+    viewRows = v;
+    return first;
+  }
+
+}
@@ -72,13 +72,15 @@ public class LabeledComponent<C extends Component> extends JComponent {
   }
 
   /**
-   * Returns the screen width of a string with some buffer with a given font
+   * Returns the screen width of a string with some buffer with a given font.
+   * The buffer leaves room for the colon after a label, and for text drawn with
+   * fractional widths, which can be up to half a pixel wider per character.
    * @param s String to return the width of
    * @param font Font of the string
    * @return An upper bound for the width of the given string with the given font
    */
   public static int bufferedStringWidth(String s, Font font) {
-    return font.getSize() * s.length();
+    return TextMetrics.stringWidth(font, s + ':') + (s.length() / 2) + 2;
   }
 
   /**
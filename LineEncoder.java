@@ -0,0 +1,69 @@
+package swinglib;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes log lines into bytes with reused buffers, so writing a line doesn't allocate.
+ * Not thread-safe.
+ * @author milind
+ */
+final class LineEncoder {
+
+  private static final String SEPARATOR = System.lineSeparator();
+
+  private final CharsetEncoder encoder;
+  private char[] chars = new char[0];
+  private CharBuffer charBuffer = CharBuffer.wrap(chars);
+  private ByteBuffer bytes = ByteBuffer.allocate(0);
+
+  /**
+   * Creates an encoder for the given charset
+   * @param charset Charset to encode with
+   */
+  LineEncoder(Charset charset) {
+    encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Encodes a line followed by a line separator
+   * @param line Line to encode
+   * @return Buffer containing the encoded line, ready to be read.
+   *         Only valid until the next call.
+   */
+  ByteBuffer encode(CharSequence line) {
+    final int length = line.length() + SEPARATOR.length();
+    if (chars.length < length) {
+      chars = new char[Math.max(length, 2 * chars.length)];
+      charBuffer = CharBuffer.wrap(chars);
+      bytes = ByteBuffer.allocate((int) (chars.length * encoder.maxBytesPerChar()));
+    }
+    copy(line, chars);
+    SEPARATOR.getChars(0, SEPARATOR.length(), chars, line.length());
+
+    charBuffer.clear().limit(length);
+    bytes.clear();
+    encoder.reset();
+    encoder.encode(charBuffer, bytes, true);
+    encoder.flush(bytes);
+    return bytes.flip();
+  }
+
+  private static void copy(CharSequence line, char[] dst) {
+    if (line instanceof StringBuilder) {
+      ((StringBuilder) line).getChars(0, line.length(), dst, 0);
+    } else if (line instanceof String) {
+      ((String) line).getChars(0, line.length(), dst, 0);
+    } else {
+      for (int i = 0; i < line.length(); i++) {
+        dst[i] = line.charAt(i);
+      }
+    }
+  }
+
+}
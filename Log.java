@@ -1,7 +1,16 @@
 package swinglib;
 
 import java.io.PrintStream;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Google-style logger to make debugging easier
@@ -38,262 +47,2282 @@ public final class Log {
      */
     FATAL(System.err);
 
-    private final PrintWriter out;
+    private final PrintStream stream;
 
-    private Severity(PrintStream out) {
-      this.out = new PrintWriter(out, true);
+    private Severity(PrintStream stream) {
+      this.stream = stream;
     }
   }
 
-  private static Severity min = Severity.INFO;
+  /**
+   * Destination for log lines.
+   * Sinks are called from the logging thread when logging synchronously, and from
+   * the writer thread when logging asynchronously, so they must be thread-safe.
+   * @author milind
+   */
+  public static interface Sink {
+
+    /**
+     * Writes a line. The sink may buffer it until <code>endBatch</code> or <code>flush</code>.
+     * @param severity Severity of the line
+     * @param line Formatted line, without a line separator.
+     *             Only valid for the duration of the call.
+     */
+    void write(Severity severity, CharSequence line);
+
+    /**
+     * Called after each line when logging synchronously, and after each batch of lines
+     * when logging asynchronously. Sinks that group writes together may delay writing
+     * buffered lines until later.
+     */
+    default void endBatch() {
+      flush();
+    }
+
+    /**
+     * Writes out all buffered lines
+     */
+    default void flush() {}
+  }
+
+  /**
+   * Writes lines to <code>System.out</code>, or <code>System.err</code> for
+   * <code>ERROR</code> and above, as they were when <code>Log</code> was loaded
+   */
+  private static final class ConsoleSink implements Sink {
+    private final LineEncoder encoder = new LineEncoder(Charset.defaultCharset());
+    private ByteBuffer pending = ByteBuffer.allocate(8192);
+    private PrintStream pendingStream = null;
+
+    @Override
+    public synchronized void write(Severity severity, CharSequence line) {
+      if (severity.stream != pendingStream) {
+        flush(); // Keep lines in order across both streams
+        pendingStream = severity.stream;
+      }
+      final var bytes = encoder.encode(line);
+      if (pending.remaining() < bytes.remaining()) {
+        flush();
+        if (pending.capacity() < bytes.remaining()) {
+          pending = ByteBuffer.allocate(bytes.remaining());
+        }
+      }
+      pending.put(bytes);
+    }
+
+    @Override
+    public synchronized void flush() {
+      if (pending.position() != 0) {
+        pendingStream.write(pending.array(), 0, pending.position());
+        pending.clear();
+      }
+    }
+  }
+
+  /**
+   * Sink that writes to the console. This is the only sink by default.
+   */
+  public static final Sink CONSOLE = new ConsoleSink();
+
+  /**
+   * Limits how often a log statement is printed, so that a log in a loop doesn't flood
+   * the output. Keep each limit in a static final field next to the logs it limits,
+   * since the limit is shared by everything that uses it.
+   * A suppressed log only costs a few atomic operations and is never formatted.
+   * When a log is printed after others were suppressed, a line saying how many were
+   * suppressed is printed before it. Since a <code>firstN</code> limit never prints again,
+   * its suppressed logs are reported by <code>Log.flush</code> instead, which also runs at exit.
+   * @author milind
+   */
+  public abstract static class RateLimit {
+
+    /**
+     * Logs suppressed since the last one was printed
+     */
+    final AtomicLong suppressed = new AtomicLong();
+
+    RateLimit() {}
+
+    /**
+     * Decides whether to print a log
+     * @param severity Severity of the log
+     * @return Whether the log should be printed
+     */
+    abstract boolean acquire(Severity severity);
+
+    private boolean allow(Severity severity) {
+      boolean allow = isEnabled(severity) && acquire(severity);
+      if (allow) {
+        final long count = suppressed.getAndSet(0);
+        if (count != 0) {
+          log(severity, "Suppressed", count, "logs");
+        }
+      }
+      return allow;
+    }
+
+    /**
+     * Logs arguments separated by a space as debug severity, if the limit allows it
+     * @param args Arguments to log
+     */
+    public void debug(Object... args) {
+      if (allow(Severity.DEBUG)) {
+        log(Severity.DEBUG, args);
+      }
+    }
+
+    /**
+     * Logs arguments printf-style as debug severity, if the limit allows it
+     * @param fmt String to format into
+     * @param args Arguments to log
+     */
+    public void debugf(String fmt, Object... args) {
+      if (allow(Severity.DEBUG)) {
+        logf(Severity.DEBUG, fmt, args);
+      }
+    }
+
+    /**
+     * Logs arguments separated by a space as info severity, if the limit allows it
+     * @param args Arguments to log
+     */
+    public void info(Object... args) {
+      if (allow(Severity.INFO)) {
+        log(Severity.INFO, args);
+      }
+    }
+
+    /**
+     * Logs arguments printf-style as info severity, if the limit allows it
+     * @param fmt String to format into
+     * @param args Arguments to log
+     */
+    public void infof(String fmt, Object... args) {
+      if (allow(Severity.INFO)) {
+        logf(Severity.INFO, fmt, args);
+      }
+    }
+
+    /**
+     * Logs arguments separated by a space as warning severity, if the limit allows it
+     * @param args Arguments to log
+     */
+    public void warning(Object... args) {
+      if (allow(Severity.WARNING)) {
+        log(Severity.WARNING, args);
+      }
+    }
+
+    /**
+     * Logs arguments printf-style as warning severity, if the limit allows it
+     * @param fmt String to format into
+     * @param args Arguments to log
+     */
+    public void warningf(String fmt, Object... args) {
+      if (allow(Severity.WARNING)) {
+        logf(Severity.WARNING, fmt, args);
+      }
+    }
+
+    /**
+     * Logs arguments separated by a space as error severity, if the limit allows it
+     * @param args Arguments to log
+     */
+    public void error(Object... args) {
+      if (allow(Severity.ERROR)) {
+        log(Severity.ERROR, args);
+      }
+    }
+
+    /**
+     * Logs arguments printf-style as error severity, if the limit allows it
+     * @param fmt String to format into
+     * @param args Arguments to log
+     */
+    public void errorf(String fmt, Object... args) {
+      if (allow(Severity.ERROR)) {
+        logf(Severity.ERROR, fmt, args);
+      }
+    }
+  }
+
+  private static final class EveryN extends RateLimit {
+    private final int n;
+    private final AtomicLong count = new AtomicLong();
+
+    EveryN(int n) {
+      this.n = n;
+    }
+
+    @Override
+    boolean acquire(Severity severity) {
+      final boolean acquired = ((count.getAndIncrement() % n) == 0);
+      if (!acquired) {
+        suppressed.incrementAndGet();
+      }
+      return acquired;
+    }
+  }
+
+  private static final class FirstN extends RateLimit {
+    private final int n;
+    private final AtomicLong count = new AtomicLong();
+    /**
+     * Highest severity of the logs suppressed since the last report
+     */
+    private volatile Severity suppressedSeverity = Severity.DEBUG;
+    /**
+     * Call site of the first log suppressed since the last report, so the report shows
+     * where the logs came from rather than where it was flushed from
+     */
+    private volatile LogCallSite suppressedSite = null;
+
+    FirstN(int n) {
+      this.n = n;
+    }
+
+    @Override
+    boolean acquire(Severity severity) {
+      // Check before incrementing so that once the limit is hit,
+      // threads don't contend on the count
+      final boolean acquired = (count.get() < n) && (count.getAndIncrement() < n);
+      if (!acquired) {
+        if ((suppressed.getAndIncrement() == 0) && (callerLocation != CallerLocation.NONE)) {
+          suppressedSite = LogCallSite.find();
+        }
+        if (severity.ordinal() > suppressedSeverity.ordinal()) {
+          suppressedSeverity = severity;
+        }
+      }
+      return acquired;
+    }
+
+    /**
+     * Logs how many logs were suppressed since the last report
+     */
+    void reportSuppressed() {
+      final var severity = suppressedSeverity;
+      suppressedSeverity = Severity.DEBUG;
+      final var site = suppressedSite;
+      suppressedSite = null;
+      final long suppressedCount = suppressed.getAndSet(0);
+      if (suppressedCount != 0) {
+        logAt(severity, site, "Suppressed", suppressedCount, "logs after the first", n);
+      }
+    }
+  }
+
+  private static final class AtMostEvery extends RateLimit {
+    private final long intervalNanos;
+    /**
+     * Earliest time the next log can be printed
+     */
+    private final AtomicLong next = new AtomicLong(System.nanoTime());
+
+    AtMostEvery(Duration interval) {
+      intervalNanos = interval.toNanos();
+    }
+
+    @Override
+    boolean acquire(Severity severity) {
+      final long now = System.nanoTime();
+      final long deadline = next.get();
+      final boolean acquired =
+          ((now - deadline) >= 0) && next.compareAndSet(deadline, now + intervalNanos);
+      if (!acquired) {
+        suppressed.incrementAndGet();
+      }
+      return acquired;
+    }
+  }
+
+  /**
+   * What asynchronous logging does when its buffer is full
+   * @author milind
+   */
+  public static enum OverflowPolicy {
+    /**
+     * Wait for the writer to make space
+     */
+    BLOCK,
+    /**
+     * Drop records below <code>ERROR</code>, and wait for space for the rest
+     */
+    DROP,
+    /**
+     * Like <code>DROP</code>, but keep one out of every few records below <code>ERROR</code>
+     */
+    SAMPLE
+  }
+
+  /**
+   * How the file and line of the caller are found for each log line
+   * @author milind
+   */
+  public static enum CallerLocation {
+    /**
+     * Builds the full stack trace of the calling thread for every line
+     */
+    STACK_TRACE,
+    /**
+     * Walks only the frames needed to find the caller, and caches each call site's location
+     */
+    STACK_WALKER,
+    /**
+     * Leaves the location out of log lines entirely
+     */
+    NONE
+  }
+
+  /**
+   * Reusable per-thread buffer for building log lines
+   */
+  private static final class LineBuffer {
+    final StringBuilder sb = new StringBuilder();
+  }
+
+  private static volatile Severity min = Severity.INFO;
+  /**
+   * Minimum severities for packages and classes, by name
+   */
+  private static final ConcurrentHashMap<String, Severity> minSeverities =
+      new ConcurrentHashMap<>();
+  /**
+   * Ordinal of the lowest minimum severity set anywhere, so that logs below it
+   * can be skipped without finding the caller
+   */
+  private static volatile int floor = min.ordinal();
+  /**
+   * Incremented whenever a minimum severity changes, so call sites know to resolve theirs again
+   */
+  private static volatile int severitiesVersion = 0;
+  private static volatile CallerLocation callerLocation = CallerLocation.STACK_WALKER;
   private static final int FATAL_STATUS = 255;
 
+  /**
+   * Writer for asynchronous logging, or <code>null</code> when logging synchronously
+   */
+  private static volatile AsyncLogWriter async = null;
+  private static final ThreadLocal<LineBuffer> lineBuffers = new ThreadLocal<>();
+  private static volatile Sink[] sinks = {CONSOLE};
+  /**
+   * Binary log that replaces the sinks, or <code>null</code> when logging text
+   */
+  private static volatile BinaryLog binary = null;
+  private static boolean flushOnExit = false;
+  /**
+   * First-N limits in use, whose suppressed logs are reported on flush. Guarded by itself.
+   */
+  private static final Set<FirstN> firstNLimits = Collections.newSetFromMap(new WeakHashMap<>());
+
   /**
    * Sets the minimum severity for logs that are printed.
    * Subsequent logs of lower severities will not be printed, 
    * but they can be kept in code.
    * @param severity Minimum severity
    */
-  public static void setMinSeverity(Severity severity) {
+  public static synchronized void setMinSeverity(Severity severity) {
     min = severity;
+    severitiesChanged();
+  }
+
+  /**
+   * Sets the minimum severity for logs from a package or class, overriding the minimum
+   * severity of any enclosing package or class. Nested classes use the severity of the
+   * class they are in unless they have their own.
+   * Only applies when the caller location is found, and can be changed at any time.
+   * @param name Fully qualified name of the package or class
+   * @param severity Minimum severity
+   */
+  public static synchronized void setMinSeverity(String name, Severity severity) {
+    minSeverities.put(name, severity);
+    severitiesChanged();
+  }
+
+  /**
+   * Sets the minimum severity for logs from a class and the classes nested in it
+   * @param cls Class to set the severity for
+   * @param severity Minimum severity
+   */
+  public static void setMinSeverity(Class<?> cls, Severity severity) {
+    setMinSeverity(cls.getName(), severity);
+  }
+
+  /**
+   * Makes a package or class use the minimum severity of whatever encloses it again
+   * @param name Fully qualified name of the package or class
+   */
+  public static synchronized void clearMinSeverity(String name) {
+    minSeverities.remove(name);
+    severitiesChanged();
+  }
+
+  private static void severitiesChanged() {
+    int lowest = min.ordinal();
+    for (var severity : minSeverities.values()) {
+      lowest = Math.min(lowest, severity.ordinal());
+    }
+    floor = lowest;
+    severitiesVersion++;
+  }
+
+  /**
+   * Returns the version of the minimum severities, which changes whenever one is set
+   */
+  static int severitiesVersion() {
+    return severitiesVersion;
+  }
+
+  /**
+   * Returns the minimum severity for logs from a class
+   * @param className Fully qualified name of the class
+   * @return The severity of the class or its closest enclosing class or package
+   *         that has one, or the global minimum severity if none do
+   */
+  static Severity minSeverity(String className) {
+    Severity severity = null;
+    var name = className;
+    while ((severity == null) && !minSeverities.isEmpty()) {
+      severity = minSeverities.get(name);
+      final int end = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'));
+      if (end < 0) {
+        break;
+      }
+      name = name.substring(0, end);
+    }
+    return (severity != null) ? severity : min;
+  }
+
+  /**
+   * Returns whether logs of the given severity could be printed from anywhere.
+   * Useful for skipping expensive work that is only needed for a log.
+   * @param severity Severity to check
+   * @return Whether the severity is at least the lowest minimum severity
+   */
+  public static boolean isEnabled(Severity severity) {
+    return severity.ordinal() >= floor;
+  }
+
+  private static boolean isEnabled(Severity severity, LogCallSite site) {
+    return (site != null) ? site.isEnabled(severity) : (severity.ordinal() >= min.ordinal());
+  }
+
+  /**
+   * Sets how the caller's file and line are found for subsequent logs.
+   * Defaults to <code>CallerLocation.STACK_WALKER</code>.
+   * @param location How to find the caller location
+   */
+  public static void setCallerLocation(CallerLocation location) {
+    callerLocation = location;
+  }
+
+  /**
+   * Makes subsequent logs get written by a background thread instead of the caller.
+   * Messages are still formatted on the calling thread, so they show the same values
+   * they would if logged synchronously.
+   * @param capacity Maximum number of messages waiting to be written
+   * @param policy What to do when <code>capacity</code> messages are already waiting
+   */
+  public static synchronized void setAsync(int capacity, OverflowPolicy policy) {
+    final var old = async;
+    async = new AsyncLogWriter(capacity, policy);
+    if (old != null) {
+      old.stop();
+    }
+    flushOnExit();
+  }
+
+  /**
+   * Writes any messages waiting to be written, and makes subsequent logs synchronous again.
+   */
+  public static synchronized void setSync() {
+    final var old = async;
+    async = null;
+    if (old != null) {
+      old.stop();
+    }
+  }
+
+  /**
+   * Blocks until all messages logged so far have been written, and flushes every sink.
+   */
+  public static void flush() {
+    reportSuppressed();
+    final var writer = async;
+    if (writer != null) {
+      writer.flush();
+    }
+    for (var sink : sinks) {
+      sink.flush();
+    }
+    final var binaryLog = binary;
+    if (binaryLog != null) {
+      binaryLog.flush();
+    }
+  }
+
+  /**
+   * Sets where subsequent logs are written, replacing all current sinks
+   * @param newSinks Sinks to write to
+   */
+  public static synchronized void setSinks(Sink... newSinks) {
+    flush();
+    sinks = newSinks.clone();
+    flushOnExit();
+  }
+
+  /**
+   * Adds a sink that subsequent logs are also written to
+   * @param sink Sink to add
+   */
+  public static synchronized void addSink(Sink sink) {
+    final var newSinks = Arrays.copyOf(sinks, sinks.length + 1);
+    newSinks[sinks.length] = sink;
+    sinks = newSinks;
+    flushOnExit();
+  }
+
+  /**
+   * Stops writing subsequent logs to the given sink, after flushing it
+   * @param sink Sink to remove
+   */
+  public static synchronized void removeSink(Sink sink) {
+    flush();
+    sinks = Arrays.stream(sinks).filter(s -> s != sink).toArray(Sink[]::new);
+  }
+
+  /**
+   * Creates a limit that prints the first log and then every <code>n</code>th log after it
+   * @param n How many logs there are per printed log
+   * @return The limit
+   */
+  public static RateLimit everyN(int n) {
+    checkGt(n, 0, "N must be positive");
+    return new EveryN(n);
+  }
+
+  /**
+   * Creates a limit that only prints the first <code>n</code> logs
+   * @param n How many logs to print
+   * @return The limit
+   */
+  public static RateLimit firstN(int n) {
+    checkGe(n, 0, "N can't be negative");
+    final var limit = new FirstN(n);
+    synchronized (firstNLimits) {
+      firstNLimits.add(limit);
+    }
+    flushOnExit();
+    return limit;
+  }
+
+  private static void reportSuppressed() {
+    final FirstN[] limits;
+    synchronized (firstNLimits) {
+      limits = firstNLimits.toArray(new FirstN[0]);
+    }
+    for (var limit : limits) {
+      limit.reportSuppressed();
+    }
+  }
+
+  /**
+   * Creates a limit that prints at most one log per interval
+   * @param interval Minimum time between printed logs
+   * @return The limit
+   */
+  public static RateLimit atMostEvery(Duration interval) {
+    check(!interval.isNegative(), "Interval can't be negative");
+    return new AtMostEvery(interval);
+  }
+
+  /**
+   * Makes subsequent logs get written to a binary log instead of the sinks.
+   * Printf-style logs are written without being formatted, which saves formatting
+   * on the logging thread. Other logs are still formatted.
+   * @param log Binary log to write to, or <code>null</code> to go back to writing text
+   */
+  public static synchronized void setBinaryLog(BinaryLog log) {
+    flush();
+    binary = log;
+    if (log != null) {
+      flushOnExit();
+    }
+  }
+
+  /**
+   * Makes sure queued and buffered lines are written when the process exits
+   */
+  private static synchronized void flushOnExit() {
+    if (!flushOnExit) {
+      Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "swinglib-log-flush"));
+      flushOnExit = true;
+    }
+  }
+
+  /**
+   * Returns the current sinks. The array must not be modified.
+   */
+  static Sink[] sinks() {
+    return sinks;
+  }
+
+  /**
+   * Logs arguments separated by a space as debug severity
+   * @param args Arguments to log
+   */
+  public static void debug(Object... args) {
+    log(Severity.DEBUG, args);
+  }
+
+  /**
+   * Logs arguments printf-style as debug severity
+   * @param fmt String to format into
+   * @param args Aruments to log
+   */
+  public static void debugf(String fmt, Object... args) {
+    logf(Severity.DEBUG, fmt, args);
+  }
+
+  /**
+   * Logs an argument as debug severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   */
+  public static void debug(Object a) {
+    log(Severity.DEBUG, a);
+  }
+
+  /**
+   * Logs 2 arguments separated by a space as debug severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(Object a, Object b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs 3 arguments separated by a space as debug severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void debug(Object a, Object b, Object c) {
+    log(Severity.DEBUG, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments separated by a space as debug severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void debug(Object a, Object b, Object c, Object d) {
+    log(Severity.DEBUG, a, b, c, d);
+  }
+
+  /**
+   * Logs a string and an <code>int</code> separated by a space as debug severity,
+   * without boxing the <code>int</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(String a, int b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>long</code> separated by a space as debug severity,
+   * without boxing the <code>long</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(String a, long b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>double</code> separated by a space as debug severity,
+   * without boxing the <code>double</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(String a, double b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>float</code> separated by a space as debug severity,
+   * without boxing the <code>float</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(String a, float b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>char</code> separated by a space as debug severity,
+   * without boxing the <code>char</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debug(String a, char b) {
+    log(Severity.DEBUG, a, b);
+  }
+
+  /**
+   * Logs the result of the supplier as debug severity.
+   * The supplier is only called if debug severity is enabled.
+   * @param message Supplier of the message to log
+   */
+  public static void debugLazy(Supplier<?> message) {
+    log(Severity.DEBUG, message);
+  }
+
+  /**
+   * Logs an argument printf-style as debug severity,
+   * only allocating an argument array if debug severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   */
+  public static void debugf(String fmt, Object a) {
+    logf(Severity.DEBUG, fmt, a);
+  }
+
+  /**
+   * Logs 2 arguments printf-style as debug severity,
+   * only allocating an argument array if debug severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void debugf(String fmt, Object a, Object b) {
+    logf(Severity.DEBUG, fmt, a, b);
+  }
+
+  /**
+   * Logs 3 arguments printf-style as debug severity,
+   * only allocating an argument array if debug severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void debugf(String fmt, Object a, Object b, Object c) {
+    logf(Severity.DEBUG, fmt, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments printf-style as debug severity,
+   * only allocating an argument array if debug severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void debugf(String fmt, Object a, Object b, Object c, Object d) {
+    logf(Severity.DEBUG, fmt, a, b, c, d);
+  }
+
+  /**
+   * Logs arguments separated by a space as info severity
+   * @param args Arguments to log
+   */
+  public static void info(Object... args) {
+    log(Severity.INFO, args);
+  }
+
+  /**
+   * Logs arguments printf-style as info severity
+   * @param fmt String to format into
+   * @param args Aruments to log
+   */
+  public static void infof(String fmt, Object... args) {
+    logf(Severity.INFO, fmt, args);
+  }
+
+  /**
+   * Logs an argument as info severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   */
+  public static void info(Object a) {
+    log(Severity.INFO, a);
+  }
+
+  /**
+   * Logs 2 arguments separated by a space as info severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(Object a, Object b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs 3 arguments separated by a space as info severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void info(Object a, Object b, Object c) {
+    log(Severity.INFO, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments separated by a space as info severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void info(Object a, Object b, Object c, Object d) {
+    log(Severity.INFO, a, b, c, d);
+  }
+
+  /**
+   * Logs a string and an <code>int</code> separated by a space as info severity,
+   * without boxing the <code>int</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(String a, int b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>long</code> separated by a space as info severity,
+   * without boxing the <code>long</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(String a, long b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>double</code> separated by a space as info severity,
+   * without boxing the <code>double</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(String a, double b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>float</code> separated by a space as info severity,
+   * without boxing the <code>float</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(String a, float b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>char</code> separated by a space as info severity,
+   * without boxing the <code>char</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void info(String a, char b) {
+    log(Severity.INFO, a, b);
+  }
+
+  /**
+   * Logs the result of the supplier as info severity.
+   * The supplier is only called if info severity is enabled.
+   * @param message Supplier of the message to log
+   */
+  public static void infoLazy(Supplier<?> message) {
+    log(Severity.INFO, message);
+  }
+
+  /**
+   * Logs an argument printf-style as info severity,
+   * only allocating an argument array if info severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   */
+  public static void infof(String fmt, Object a) {
+    logf(Severity.INFO, fmt, a);
+  }
+
+  /**
+   * Logs 2 arguments printf-style as info severity,
+   * only allocating an argument array if info severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void infof(String fmt, Object a, Object b) {
+    logf(Severity.INFO, fmt, a, b);
+  }
+
+  /**
+   * Logs 3 arguments printf-style as info severity,
+   * only allocating an argument array if info severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void infof(String fmt, Object a, Object b, Object c) {
+    logf(Severity.INFO, fmt, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments printf-style as info severity,
+   * only allocating an argument array if info severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void infof(String fmt, Object a, Object b, Object c, Object d) {
+    logf(Severity.INFO, fmt, a, b, c, d);
+  }
+
+  /**
+   * Logs arguments separated by a space as warning severity
+   * @param args Arguments to log
+   */
+  public static void warning(Object... args) {
+    log(Severity.WARNING, args);
+  }
+
+  /**
+   * Logs arguments printf-style as warning severity
+   * @param fmt String to format into
+   * @param args Aruments to log
+   */
+  public static void warningf(String fmt, Object... args) {
+    logf(Severity.WARNING, fmt, args);
+  }
+
+  /**
+   * Logs an argument as warning severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   */
+  public static void warning(Object a) {
+    log(Severity.WARNING, a);
+  }
+
+  /**
+   * Logs 2 arguments separated by a space as warning severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(Object a, Object b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs 3 arguments separated by a space as warning severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void warning(Object a, Object b, Object c) {
+    log(Severity.WARNING, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments separated by a space as warning severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void warning(Object a, Object b, Object c, Object d) {
+    log(Severity.WARNING, a, b, c, d);
+  }
+
+  /**
+   * Logs a string and an <code>int</code> separated by a space as warning severity,
+   * without boxing the <code>int</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(String a, int b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>long</code> separated by a space as warning severity,
+   * without boxing the <code>long</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(String a, long b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>double</code> separated by a space as warning severity,
+   * without boxing the <code>double</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(String a, double b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>float</code> separated by a space as warning severity,
+   * without boxing the <code>float</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(String a, float b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>char</code> separated by a space as warning severity,
+   * without boxing the <code>char</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warning(String a, char b) {
+    log(Severity.WARNING, a, b);
+  }
+
+  /**
+   * Logs the result of the supplier as warning severity.
+   * The supplier is only called if warning severity is enabled.
+   * @param message Supplier of the message to log
+   */
+  public static void warningLazy(Supplier<?> message) {
+    log(Severity.WARNING, message);
+  }
+
+  /**
+   * Logs an argument printf-style as warning severity,
+   * only allocating an argument array if warning severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   */
+  public static void warningf(String fmt, Object a) {
+    logf(Severity.WARNING, fmt, a);
+  }
+
+  /**
+   * Logs 2 arguments printf-style as warning severity,
+   * only allocating an argument array if warning severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void warningf(String fmt, Object a, Object b) {
+    logf(Severity.WARNING, fmt, a, b);
+  }
+
+  /**
+   * Logs 3 arguments printf-style as warning severity,
+   * only allocating an argument array if warning severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void warningf(String fmt, Object a, Object b, Object c) {
+    logf(Severity.WARNING, fmt, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments printf-style as warning severity,
+   * only allocating an argument array if warning severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void warningf(String fmt, Object a, Object b, Object c, Object d) {
+    logf(Severity.WARNING, fmt, a, b, c, d);
+  }
+
+  /**
+   * Logs arguments separated by a space as error severity
+   * @param args Arguments to log
+   */
+  public static void error(Object... args) {
+    log(Severity.ERROR, args);
+  }
+
+  /**
+   * Logs arguments printf-style as error severity
+   * @param fmt String to format into
+   * @param args Aruments to log
+   */
+  public static void errorf(String fmt, Object... args) {
+    logf(Severity.ERROR, fmt, args);
+  }
+
+  /**
+   * Logs an argument as error severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   */
+  public static void error(Object a) {
+    log(Severity.ERROR, a);
+  }
+
+  /**
+   * Logs 2 arguments separated by a space as error severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(Object a, Object b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs 3 arguments separated by a space as error severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void error(Object a, Object b, Object c) {
+    log(Severity.ERROR, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments separated by a space as error severity,
+   * without allocating an array for the arguments
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void error(Object a, Object b, Object c, Object d) {
+    log(Severity.ERROR, a, b, c, d);
+  }
+
+  /**
+   * Logs a string and an <code>int</code> separated by a space as error severity,
+   * without boxing the <code>int</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(String a, int b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>long</code> separated by a space as error severity,
+   * without boxing the <code>long</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(String a, long b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>double</code> separated by a space as error severity,
+   * without boxing the <code>double</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(String a, double b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>float</code> separated by a space as error severity,
+   * without boxing the <code>float</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(String a, float b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs a string and a <code>char</code> separated by a space as error severity,
+   * without boxing the <code>char</code>
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void error(String a, char b) {
+    log(Severity.ERROR, a, b);
+  }
+
+  /**
+   * Logs the result of the supplier as error severity.
+   * The supplier is only called if error severity is enabled.
+   * @param message Supplier of the message to log
+   */
+  public static void errorLazy(Supplier<?> message) {
+    log(Severity.ERROR, message);
+  }
+
+  /**
+   * Logs an argument printf-style as error severity,
+   * only allocating an argument array if error severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   */
+  public static void errorf(String fmt, Object a) {
+    logf(Severity.ERROR, fmt, a);
+  }
+
+  /**
+   * Logs 2 arguments printf-style as error severity,
+   * only allocating an argument array if error severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   */
+  public static void errorf(String fmt, Object a, Object b) {
+    logf(Severity.ERROR, fmt, a, b);
+  }
+
+  /**
+   * Logs 3 arguments printf-style as error severity,
+   * only allocating an argument array if error severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   */
+  public static void errorf(String fmt, Object a, Object b, Object c) {
+    logf(Severity.ERROR, fmt, a, b, c);
+  }
+
+  /**
+   * Logs 4 arguments printf-style as error severity,
+   * only allocating an argument array if error severity is enabled
+   * @param fmt String to format into
+   * @param a First argument to log
+   * @param b Second argument to log
+   * @param c Third argument to log
+   * @param d Fourth argument to log
+   */
+  public static void errorf(String fmt, Object a, Object b, Object c, Object d) {
+    logf(Severity.ERROR, fmt, a, b, c, d);
+  }
+
+  /**
+   * Logs arguments separated by a space as fatal severity, and kills the process
+   * @param args Arguments to log
+   */
+  public static void fatal(Object... args) {
+    log(Severity.FATAL, args);
+    flush();
+    Thread.dumpStack();
+    System.exit(FATAL_STATUS);
+  }
+
+  /**
+   * Logs arguments printf-style as fatal severity, and kills the process
+   * @param fmt String to format into
+   * @param args Aruments to log
+   */
+  public static void fatalf(String fmt, Object... args) {
+    logf(Severity.FATAL, fmt, args);
+    flush();
+    Thread.dumpStack();
+    System.exit(FATAL_STATUS);
+  }
+
+  private static String varargsToString(Object... args) {
+    StringBuilder sb = new StringBuilder();
+    for (var o : args) {
+      sb.append(o);
+      sb.append(" ");
+    }
+    if (sb.length() != 0) {
+      sb.deleteCharAt(sb.length() - 1); // Remove last space
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if the given condition is false
+   * @param cond Condition to check
+   * @param args Arguments to log if condition fails
+   */
+  public static void check(boolean cond, Object... args) {
+    if (!cond) {
+      fatal("Check failed:", varargsToString(args));
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if the given condition is false.
+   * Allocates nothing when the check passes.
+   * @param cond Condition to check
+   */
+  public static void check(boolean cond) {
+    if (!cond) {
+      fatal("Check failed:", "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if the given condition is false.
+   * Allocates nothing when the check passes.
+   * @param cond Condition to check
+   * @param message Message to log if condition fails
+   */
+  public static void check(boolean cond, Object message) {
+    if (!cond) {
+      fatal("Check failed:", message);
+    }
+  }
+
+  private static void checkOperator(boolean cond, String operator, Object a, Object b,
+      Object... args) {
+    if (!cond) {
+      checkFailed(operator, a, b, varargsToString(args));
+    }
+  }
+
+  /**
+   * Only called once a check has failed, so primitives are boxed here instead of
+   * on the passing path
+   */
+  private static void checkFailed(String operator, Object a, Object b, Object message) {
+    fatal("Check failed: expected", a, operator, b, '\n', message);
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code>!a.equals(b)</code>
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
+   */
+  public static void checkEq(Object a, Object b, Object... args) {
+    checkOperator(a.equals(b), "==", a, b, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkEq(int a, int b) {
+    if (!(a == b)) {
+      checkFailed("==", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkEq(int a, int b, Object message) {
+    if (!(a == b)) {
+      checkFailed("==", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkEq(long a, long b) {
+    if (!(a == b)) {
+      checkFailed("==", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkEq(long a, long b, Object message) {
+    if (!(a == b)) {
+      checkFailed("==", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a != b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkEq(double a, double b) {
+    if (!(Double.compare(a, b) == 0)) {
+      checkFailed("==", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a != b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkEq(double a, double b, Object message) {
+    if (!(Double.compare(a, b) == 0)) {
+      checkFailed("==", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code>a.equals(b)</code>
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
+   */
+  public static void checkNe(Object a, Object b, Object... args) {
+    checkOperator(!a.equals(b), "!=", a, b, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkNe(int a, int b) {
+    if (!(a != b)) {
+      checkFailed("!=", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkNe(int a, int b, Object message) {
+    if (!(a != b)) {
+      checkFailed("!=", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkNe(long a, long b) {
+    if (!(a != b)) {
+      checkFailed("!=", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkNe(long a, long b, Object message) {
+    if (!(a != b)) {
+      checkFailed("!=", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a == b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkNe(double a, double b) {
+    if (!(Double.compare(a, b) != 0)) {
+      checkFailed("!=", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a == b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkNe(double a, double b, Object message) {
+    if (!(Double.compare(a, b) != 0)) {
+      checkFailed("!=", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code>a != b</code>
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
+   */
+  public static void checkEqRef(Object a, Object b, Object... args) {
+    checkOperator(a == b, "== (ref)", a, b, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkEqRef(Object a, Object b) {
+    if (!(a == b)) {
+      checkFailed("== (ref)", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a != b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkEqRef(Object a, Object b, Object message) {
+    if (!(a == b)) {
+      checkFailed("== (ref)", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code>a == b</code>
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
+   */
+  public static void checkNeRef(Object a, Object b, Object... args) {
+    checkOperator(a != b, "!= (ref)", a, b, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkNeRef(Object a, Object b) {
+    if (!(a != b)) {
+      checkFailed("!= (ref)", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a == b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkNeRef(Object a, Object b, Object message) {
+    if (!(a != b)) {
+      checkFailed("!= (ref)", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code>a == null</code>
+   * @param a Object to check
+   * @param args Arguments to log if condition fails
+   */
+  public static void checkNotNull(Object a, Object... args) {
+    checkOperator(a != null, "!=", a, null, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a == null</code>.
+   * Allocates nothing when the check passes.
+   * @param a Object to check
+   */
+  public static void checkNotNull(Object a) {
+    if (a == null) {
+      checkFailed("!=", a, null, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a == null</code>.
+   * Allocates nothing when the check passes.
+   * @param a Object to check
+   * @param message Message to log if condition fails
+   */
+  public static void checkNotNull(Object a, Object message) {
+    if (a == null) {
+      checkFailed("!=", a, null, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given arguments if <code> a &lt;= b</code>
+   * @param <T> Class of the objects
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
+   */
+  public static <T extends Comparable<T>> void checkGt(T a, T b, Object... args) {
+    checkOperator(a.compareTo(b) > 0, ">", a, b, args);
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a &lt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkGt(int a, int b) {
+    if (!(a > b)) {
+      checkFailed(">", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a &lt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkGt(int a, int b, Object message) {
+    if (!(a > b)) {
+      checkFailed(">", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a &lt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkGt(long a, long b) {
+    if (!(a > b)) {
+      checkFailed(">", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a &lt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkGt(long a, long b, Object message) {
+    if (!(a > b)) {
+      checkFailed(">", a, b, message);
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> if <code>a &lt;= b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   */
+  public static void checkGt(double a, double b) {
+    if (!(Double.compare(a, b) > 0)) {
+      checkFailed(">", a, b, "");
+    }
+  }
+
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a &lt;= b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkGt(double a, double b, Object message) {
+    if (!(Double.compare(a, b) > 0)) {
+      checkFailed(">", a, b, message);
+    }
   }
 
   /**
-   * Logs arguments separated by a space as debug severity
-   * @param args Arguments to log
+   * Calls <code>fatal</code> with the given arguments if <code> a &gt;= b</code>
+   * @param <T> Class of the objects
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
    */
-  public static void debug(Object... args) {
-    log(Severity.DEBUG, args);
+  public static <T extends Comparable<T>> void checkLt(T a, T b, Object... args) {
+    checkOperator(a.compareTo(b) < 0, "<", a, b, args);
   }
 
   /**
-   * Logs arguments printf-style as debug severity
-   * @param fmt String to format into
-   * @param args Aruments to log
+   * Calls <code>fatal</code> if <code>a &gt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
    */
-  public static void debugf(String fmt, Object... args) {
-    logf(Severity.DEBUG, fmt, args);
+  public static void checkLt(int a, int b) {
+    if (!(a < b)) {
+      checkFailed("<", a, b, "");
+    }
   }
 
   /**
-   * Logs arguments separated by a space as info severity
-   * @param args Arguments to log
+   * Calls <code>fatal</code> with the given message if <code>a &gt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
    */
-  public static void info(Object... args) {
-    log(Severity.INFO, args);
+  public static void checkLt(int a, int b, Object message) {
+    if (!(a < b)) {
+      checkFailed("<", a, b, message);
+    }
   }
 
   /**
-   * Logs arguments printf-style as info severity
-   * @param fmt String to format into
-   * @param args Aruments to log
+   * Calls <code>fatal</code> if <code>a &gt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
    */
-  public static void infof(String fmt, Object... args) {
-    logf(Severity.INFO, fmt, args);
+  public static void checkLt(long a, long b) {
+    if (!(a < b)) {
+      checkFailed("<", a, b, "");
+    }
   }
 
   /**
-   * Logs arguments separated by a space as warning severity
-   * @param args Arguments to log
+   * Calls <code>fatal</code> with the given message if <code>a &gt;= b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
    */
-  public static void warning(Object... args) {
-    log(Severity.WARNING, args);
+  public static void checkLt(long a, long b, Object message) {
+    if (!(a < b)) {
+      checkFailed("<", a, b, message);
+    }
   }
 
   /**
-   * Logs arguments printf-style as warning severity
-   * @param fmt String to format into
-   * @param args Aruments to log
+   * Calls <code>fatal</code> if <code>a &gt;= b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
    */
-  public static void warningf(String fmt, Object... args) {
-    logf(Severity.WARNING, fmt, args);
+  public static void checkLt(double a, double b) {
+    if (!(Double.compare(a, b) < 0)) {
+      checkFailed("<", a, b, "");
+    }
   }
 
   /**
-   * Logs arguments separated by a space as error severity
-   * @param args Arguments to log
+   * Calls <code>fatal</code> with the given message if <code>a &gt;= b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
    */
-  public static void error(Object... args) {
-    log(Severity.ERROR, args);
+  public static void checkLt(double a, double b, Object message) {
+    if (!(Double.compare(a, b) < 0)) {
+      checkFailed("<", a, b, message);
+    }
   }
 
   /**
-   * Logs arguments printf-style as error severity
-   * @param fmt String to format into
-   * @param args Aruments to log
+   * Calls <code>fatal</code> with the given arguments if <code> a &lt; b</code>
+   * @param <T> Class of the objects
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param args Arguments to log if condition fails
    */
-  public static void errorf(String fmt, Object... args) {
-    logf(Severity.ERROR, fmt, args);
+  public static <T extends Comparable<T>> void checkGe(T a, T b, Object... args) {
+    checkOperator(a.compareTo(b) >= 0, ">=", a, b, args);
   }
 
   /**
-   * Logs arguments separated by a space as fatal severity, and kills the process
-   * @param args Arguments to log
+   * Calls <code>fatal</code> if <code>a &lt; b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
    */
-  public static void fatal(Object... args) {
-    log(Severity.FATAL, args);
-    Thread.dumpStack();
-    System.exit(FATAL_STATUS);
+  public static void checkGe(int a, int b) {
+    if (!(a >= b)) {
+      checkFailed(">=", a, b, "");
+    }
   }
 
   /**
-   * Logs arguments printf-style as fatal severity, and kills the process
-   * @param fmt String to format into
-   * @param args Aruments to log
+   * Calls <code>fatal</code> with the given message if <code>a &lt; b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
    */
-  public static void fatalf(String fmt, Object... args) {
-    logf(Severity.FATAL, fmt, args);
-    Thread.dumpStack();
-    System.exit(FATAL_STATUS);
-  }
-
-  private static String varargsToString(Object... args) {
-    StringBuilder sb = new StringBuilder();
-    for (var o : args) {
-      sb.append(o);
-      sb.append(" ");
-    }
-    if (sb.length() != 0) {
-      sb.deleteCharAt(sb.length() - 1); // Remove last space
+  public static void checkGe(int a, int b, Object message) {
+    if (!(a >= b)) {
+      checkFailed(">=", a, b, message);
     }
-    return sb.toString();
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if the given condition is false
-   * @param cond Condition to check
-   * @param args Arguments to log if condition fails
+   * Calls <code>fatal</code> if <code>a &lt; b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
    */
-  public static void check(boolean cond, Object... args) {
-    if (!cond) {
-      fatal("Check failed:", varargsToString(args));
+  public static void checkGe(long a, long b) {
+    if (!(a >= b)) {
+      checkFailed(">=", a, b, "");
     }
   }
 
-  private static void checkOperator(boolean cond, String operator, Object a, Object b,
-      Object... args) {
-    if (!cond) {
-      fatal("Check failed: expected", a, operator, b, '\n', varargsToString(args));
+  /**
+   * Calls <code>fatal</code> with the given message if <code>a &lt; b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
+   */
+  public static void checkGe(long a, long b, Object message) {
+    if (!(a >= b)) {
+      checkFailed(">=", a, b, message);
     }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code>!a.equals(b)</code>
+   * Calls <code>fatal</code> if <code>a &lt; b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
    */
-  public static void checkEq(Object a, Object b, Object... args) {
-    checkOperator(a.equals(b), "==", a, b, args);
+  public static void checkGe(double a, double b) {
+    if (!(Double.compare(a, b) >= 0)) {
+      checkFailed(">=", a, b, "");
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code>a.equals(b)</code>
+   * Calls <code>fatal</code> with the given message if <code>a &lt; b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
+   * @param message Message to log if condition fails
    */
-  public static void checkNe(Object a, Object b, Object... args) {
-    checkOperator(!a.equals(b), "!=", a, b, args);
+  public static void checkGe(double a, double b, Object message) {
+    if (!(Double.compare(a, b) >= 0)) {
+      checkFailed(">=", a, b, message);
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code>a != b</code>
+   * Calls <code>fatal</code> with the given arguments if <code> a &gt; b</code>
+   * @param <T> Class of the objects
    * @param a First argument to operator
    * @param b Second argument to operator
    * @param args Arguments to log if condition fails
    */
-  public static void checkEqRef(Object a, Object b, Object... args) {
-    checkOperator(a == b, "== (ref)", a, b, args);
+  public static <T extends Comparable<T>> void checkLe(T a, T b, Object... args) {
+    checkOperator(a.compareTo(b) <= 0, "<=", a, b, args);
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code>a == b</code>
+   * Calls <code>fatal</code> if <code>a &gt; b</code>.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
    */
-  public static void checkNeRef(Object a, Object b, Object... args) {
-    checkOperator(a != b, "!= (ref)", a, b, args);
+  public static void checkLe(int a, int b) {
+    if (!(a <= b)) {
+      checkFailed("<=", a, b, "");
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code>a == null</code>
-   * @param a Object to check
-   * @param args Arguments to log if condition fails
+   * Calls <code>fatal</code> with the given message if <code>a &gt; b</code>.
+   * Allocates nothing when the check passes.
+   * @param a First argument to operator
+   * @param b Second argument to operator
+   * @param message Message to log if condition fails
    */
-  public static void checkNotNull(Object a, Object... args) {
-    checkOperator(a != null, "!=", a, null, args);
+  public static void checkLe(int a, int b, Object message) {
+    if (!(a <= b)) {
+      checkFailed("<=", a, b, message);
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code> a &lt;= b</code>
-   * @param <T> Class of the objects
+   * Calls <code>fatal</code> if <code>a &gt; b</code>.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
    */
-  public static <T extends Comparable<T>> void checkGt(T a, T b, Object... args) {
-    checkOperator(a.compareTo(b) > 0, ">", a, b, args);
+  public static void checkLe(long a, long b) {
+    if (!(a <= b)) {
+      checkFailed("<=", a, b, "");
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code> a &gt;= b</code>
-   * @param <T> Class of the objects
+   * Calls <code>fatal</code> with the given message if <code>a &gt; b</code>.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
+   * @param message Message to log if condition fails
    */
-  public static <T extends Comparable<T>> void checkLt(T a, T b, Object... args) {
-    checkOperator(a.compareTo(b) < 0, "<", a, b, args);
+  public static void checkLe(long a, long b, Object message) {
+    if (!(a <= b)) {
+      checkFailed("<=", a, b, message);
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code> a &lt; b</code>
-   * @param <T> Class of the objects
+   * Calls <code>fatal</code> if <code>a &gt; b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
    */
-  public static <T extends Comparable<T>> void checkGe(T a, T b, Object... args) {
-    checkOperator(a.compareTo(b) >= 0, ">=", a, b, args);
+  public static void checkLe(double a, double b) {
+    if (!(Double.compare(a, b) <= 0)) {
+      checkFailed("<=", a, b, "");
+    }
   }
 
   /**
-   * Calls <code>fatal</code> with the given arguments if <code> a &gt; b</code>
-   * @param <T> Class of the objects
+   * Calls <code>fatal</code> with the given message if <code>a &gt; b</code>.
+   * Compares like <code>Double.compare</code>, so NaN equals itself and -0.0 is less than 0.0.
+   * Allocates nothing when the check passes.
    * @param a First argument to operator
    * @param b Second argument to operator
-   * @param args Arguments to log if condition fails
+   * @param message Message to log if condition fails
    */
-  public static <T extends Comparable<T>> void checkLe(T a, T b, Object... args) {
-    checkOperator(a.compareTo(b) <= 0, "<=", a, b, args);
+  public static void checkLe(double a, double b, Object message) {
+    if (!(Double.compare(a, b) <= 0)) {
+      checkFailed("<=", a, b, message);
+    }
   }
 
 
-  private static void logHeader(Severity severity) {
-    var caller = Thread.currentThread().getStackTrace()[4];
-    severity.out.printf("[%s %s:%d] ", severity, caller.getFileName(), caller.getLineNumber());
+  /**
+   * Appends the header for a line, if the caller's minimum severity allows it
+   * @return Whether the line should be logged
+   */
+  private static boolean logHeader(StringBuilder sb, Severity severity) {
+    boolean enabled;
+    switch (callerLocation) {
+      case STACK_TRACE:
+        final var caller = findCaller(Thread.currentThread().getStackTrace());
+        if (caller != null) {
+          enabled = (severity.ordinal() >= minSeverity(caller.getClassName()).ordinal());
+          sb.append(LogCallSite.header(severity, caller.getFileName(), caller.getLineNumber()));
+        } else {
+          enabled = isEnabled(severity, null);
+          sb.append('[').append(severity).append("] ");
+        }
+        break;
+      case STACK_WALKER:
+        final var site = LogCallSite.find();
+        enabled = isEnabled(severity, site);
+        if (site != null) {
+          sb.append(site.header(severity));
+        } else {
+          sb.append('[').append(severity).append("] ");
+        }
+        break;
+      default:
+        enabled = isEnabled(severity, null);
+        sb.append('[').append(severity).append("] ");
+        break;
+    }
+    return enabled;
+  }
+
+  private static StackTraceElement findCaller(StackTraceElement[] trace) {
+    StackTraceElement caller = null;
+    // Skip the Thread.getStackTrace frame and every frame inside Log
+    for (int i = 1; (i < trace.length) && (caller == null); i++) {
+      final var className = trace[i].getClassName();
+      if (!className.equals(Log.class.getName())
+          && !className.startsWith(Log.class.getName() + '$')) {
+        caller = trace[i];
+      }
+    }
+    return caller;
   }
 
-  private static void log(Severity severity, Object... args) {
-    if (severity.ordinal() >= min.ordinal()) {
-      logHeader(severity);
+  /**
+   * Takes this thread's line buffer and starts a line in it.
+   * The buffer is removed from the thread while in use, so logging from inside
+   * an argument's <code>toString</code> gets a fresh buffer instead of clobbering it.
+   * @return The buffer, or <code>null</code> if the caller's minimum severity filters the line
+   */
+  private static LineBuffer startLine(Severity severity) {
+    var line = takeLine();
+    if (!logHeader(line.sb, severity)) {
+      lineBuffers.set(line);
+      line = null;
+    }
+    return line;
+  }
+
+  private static LineBuffer takeLine() {
+    var line = lineBuffers.get();
+    if (line == null) {
+      line = new LineBuffer();
+    } else {
+      lineBuffers.set(null);
+    }
+    line.sb.setLength(0);
+    return line;
+  }
+
+  private static void endLine(Severity severity, LineBuffer line) {
+    if (Metrics.isEnabled()) {
+      Metrics.logged(severity);
+    }
+    final var writer = async;
+    final var binaryLog = binary;
+    if (binaryLog != null) {
+      binaryLog.write(severity, line.sb);
+    } else if (writer != null) {
+      writer.write(severity, line.sb.toString());
+    } else {
+      for (var sink : sinks) {
+        sink.write(severity, line.sb);
+        sink.endBatch();
+      }
+    }
+    lineBuffers.set(line);
+  }
+
+  private static void append(LineBuffer line, Object o) {
+    line.sb.append(o);
+    if ((o != null) && !o.equals('\n') && !o.equals("\n")) {
+      line.sb.append(' ');
+    }
+  }
+
+  /**
+   * Logs arguments with the header of the given call site instead of the caller's
+   * @param site Call site to show, or <code>null</code> to show no location
+   */
+  private static void logAt(Severity severity, LogCallSite site, Object... args) {
+    if (isEnabled(severity) && isEnabled(severity, site)) {
+      final var line = takeLine();
+      if (site != null) {
+        line.sb.append(site.header(severity));
+      } else {
+        line.sb.append('[').append(severity).append("] ");
+      }
       for (var o : args) {
-        severity.out.print(o);
-        if ((o != null) && !o.equals('\n') && !o.equals("\n")) {
-          severity.out.print(' ');
+        append(line, o);
+      }
+      endLine(severity, line);
+    }
+  }
+
+  private static void log(Severity severity, Object... args) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        for (var o : args) {
+          append(line, o);
+        }
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, Object b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        append(line, b);
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, Object b, Object c) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        append(line, b);
+        append(line, c);
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, Object b, Object c, Object d) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        append(line, b);
+        append(line, c);
+        append(line, d);
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, int b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        line.sb.append(b).append(' ');
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, long b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        line.sb.append(b).append(' ');
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, double b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        line.sb.append(b).append(' ');
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, float b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        line.sb.append(b).append(' ');
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Object a, char b) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, a);
+        line.sb.append(b);
+        if (b != '\n') {
+          line.sb.append(' ');
         }
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void log(Severity severity, Supplier<?> message) {
+    if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        append(line, message.get());
+        endLine(severity, line);
       }
-      severity.out.println();
     }
   }
 
   private static void logf(Severity severity, String fmt, Object... args) {
-    if (severity.ordinal() >= min.ordinal()) {
-      logHeader(severity);
-      severity.out.printf(fmt, args);
-      severity.out.println();
+    final var binaryLog = binary;
+    if (binaryLog != null) {
+      if (isEnabled(severity)) {
+        final var site = (callerLocation != CallerLocation.NONE) ? LogCallSite.find() : null;
+        if (isEnabled(severity, site)) {
+          binaryLog.write(severity, site, fmt, args);
+          if (Metrics.isEnabled()) {
+            Metrics.logged(severity);
+          }
+        }
+      }
+    } else if (isEnabled(severity)) {
+      final var line = startLine(severity);
+      if (line != null) {
+        line.sb.append(String.format(fmt, args));
+        endLine(severity, line);
+      }
+    }
+  }
+
+  private static void logf(Severity severity, String fmt, Object a) {
+    if (isEnabled(severity)) {
+      logf(severity, fmt, new Object[] {a});
+    }
+  }
+
+  private static void logf(Severity severity, String fmt, Object a, Object b) {
+    if (isEnabled(severity)) {
+      logf(severity, fmt, new Object[] {a, b});
+    }
+  }
+
+  private static void logf(Severity severity, String fmt, Object a, Object b, Object c) {
+    if (isEnabled(severity)) {
+      logf(severity, fmt, new Object[] {a, b, c});
+    }
+  }
+
+  private static void logf(Severity severity, String fmt, Object a, Object b, Object c,
+      Object d) {
+    if (isEnabled(severity)) {
+      logf(severity, fmt, new Object[] {a, b, c, d});
     }
   }
 
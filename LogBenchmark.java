@@ -0,0 +1,66 @@
+package swinglib;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Compares how long a log takes and how much it allocates with each way of finding
+ * the caller's location, from a shallow stack and from one about as deep as a Swing
+ * event handler's. Lines go to a sink that discards them, so only finding the
+ * caller and formatting the line are measured.
+ * @author milind
+ */
+final class LogBenchmark {
+
+  private static final int CALLS = 200_000;
+  private static final int RUNS = 5;
+  /**
+   * Frames between the benchmark loop and the log in the deep case
+   */
+  private static final int DEEP_FRAMES = 100;
+
+  private LogBenchmark() {}
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getCurrentThreadAllocatedBytes();
+  }
+
+  private static void log(int depth, int i) {
+    if (depth == 0) {
+      Log.info("Value", i);
+    } else {
+      log(depth - 1, i);
+    }
+  }
+
+  private static void run(Log.CallerLocation location, int depth) {
+    Log.setCallerLocation(location);
+    double best = Double.MAX_VALUE;
+    long bytes = 0;
+    for (int run = 0; run < RUNS; run++) {
+      final long before = allocatedBytes();
+      final long start = System.nanoTime();
+      for (int i = 0; i < CALLS; i++) {
+        log(depth, i);
+      }
+      best = Math.min(best, (System.nanoTime() - start) / (double) CALLS);
+      bytes = (allocatedBytes() - before) / CALLS;
+    }
+    System.out.printf("%-14s %4d frames %,10.1f ns/log %,8d bytes/log%n", location, depth, best,
+        bytes);
+  }
+
+  /**
+   * Runs the benchmark
+   * @param args Not using command line args
+   */
+  public static void main(String[] args) {
+    Log.setSinks((severity, line) -> {});
+    for (final int depth : new int[] {0, DEEP_FRAMES}) {
+      for (final var location : Log.CallerLocation.values()) {
+        run(location, depth);
+      }
+    }
+  }
+
+}
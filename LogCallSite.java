@@ -0,0 +1,177 @@
+package swinglib;
+
+import java.lang.StackWalker.StackFrame;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A line of code that calls <code>Log</code>.
+ * Call sites are looked up with a <code>StackWalker</code>, which only walks as many frames
+ * as needed, and are cached so the file name and line number are only resolved once.
+ * @author milind
+ */
+final class LogCallSite {
+
+  /**
+   * Identifies a call site by the bytecode index of the call within its method
+   */
+  private static final class Key {
+    private final Class<?> cls;
+    private final String method;
+    private final int bci;
+
+    Key(StackFrame frame) {
+      cls = frame.getDeclaringClass();
+      method = frame.getMethodName();
+      bci = frame.getByteCodeIndex();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      boolean eq = (this == obj);
+      if (!eq && (obj instanceof Key)) {
+        final var k = (Key) obj;
+        eq = ((k.cls == cls) && (k.bci == bci) && k.method.equals(method));
+      }
+      return eq;
+    }
+
+    @Override
+    public int hashCode() {
+      return (31 * (31 * cls.hashCode() + method.hashCode())) + bci;
+    }
+  }
+
+  private static final StackWalker WALKER =
+      StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+  private static final Function<Stream<StackFrame>, Optional<StackFrame>> FIRST_EXTERNAL =
+      s -> s.filter(f -> !isInternal(f.getDeclaringClass())).findFirst();
+  private static final ConcurrentHashMap<Key, LogCallSite> CACHE = new ConcurrentHashMap<>();
+  private static final AtomicInteger ids = new AtomicInteger();
+
+  private final int id;
+  private final Class<?> cls;
+  private final String file;
+  private final int line;
+  /**
+   * Log line headers, indexed by severity ordinal
+   */
+  private final String[] headers;
+  /**
+   * Minimum severity ordinal for this call site in the low byte, and the version of
+   * the minimum severities it was resolved at above it, or -1 if not resolved yet.
+   * Packed into one field so both are always read together.
+   */
+  private volatile long minSeverity = -1;
+
+  private LogCallSite(StackFrame frame) {
+    id = ids.getAndIncrement();
+    cls = frame.getDeclaringClass();
+    file = frame.getFileName();
+    line = frame.getLineNumber();
+    final var severities = Log.Severity.values();
+    headers = new String[severities.length];
+    for (var severity : severities) {
+      headers[severity.ordinal()] = header(severity, file, line);
+    }
+  }
+
+  /**
+   * Returns the call site of the code that called into <code>Log</code>
+   * @return The call site, or <code>null</code> if <code>Log</code> wasn't called from outside
+   */
+  static LogCallSite find() {
+    final var frame = WALKER.walk(FIRST_EXTERNAL);
+    LogCallSite site = null;
+    if (frame.isPresent()) {
+      final var key = new Key(frame.get());
+      site = CACHE.get(key);
+      if (site == null) {
+        site = CACHE.computeIfAbsent(key, k -> new LogCallSite(frame.get()));
+      }
+    }
+    return site;
+  }
+
+  /**
+   * Returns whether the class is part of the logging implementation,
+   * and shouldn't be reported as a caller
+   * @param cls Class to check
+   * @return Whether the class is internal to <code>Log</code>
+   */
+  static boolean isInternal(Class<?> cls) {
+    return (cls == Log.class) || (cls == LogCallSite.class) || (cls.getNestHost() == Log.class);
+  }
+
+  /**
+   * Formats a log line header
+   * @param severity Severity of the line
+   * @param file File name of the caller
+   * @param line Line number of the caller
+   * @return The header, in the form <code>[SEVERITY File:line] </code>
+   */
+  static String header(Log.Severity severity, String file, int line) {
+    return String.format("[%s %s:%d] ", severity, file, line);
+  }
+
+  /**
+   * Returns the header for log lines from this call site
+   * @param severity Severity of the line
+   * @return The cached header
+   */
+  String header(Log.Severity severity) {
+    return headers[severity.ordinal()];
+  }
+
+  /**
+   * Returns whether logs of the given severity from this call site are printed.
+   * The call site's minimum severity is cached until a minimum severity is changed.
+   * @param severity Severity to check
+   * @return Whether the severity is at least this call site's minimum severity
+   */
+  boolean isEnabled(Log.Severity severity) {
+    final int version = Log.severitiesVersion();
+    long packed = minSeverity;
+    if ((packed >> 8) != version) {
+      packed = (((long) version) << 8) | Log.minSeverity(cls.getName()).ordinal();
+      minSeverity = packed;
+    }
+    return severity.ordinal() >= (int) (packed & 0xff);
+  }
+
+  /**
+   * Returns a unique id for this call site
+   * @return Call site id
+   */
+  int getId() {
+    return id;
+  }
+
+  /**
+   * Returns the class containing this call site
+   * @return Calling class
+   */
+  Class<?> getCallerClass() {
+    return cls;
+  }
+
+  /**
+   * Returns the source file of this call site
+   * @return File name
+   */
+  String getFileName() {
+    return file;
+  }
+
+  /**
+   * Returns the source line of this call site
+   * @return Line number
+   */
+  int getLineNumber() {
+    return line;
+  }
+
+}
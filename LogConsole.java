@@ -0,0 +1,129 @@
+package swinglib;
+
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import swinglib.Log.Severity;
+
+/**
+ * Log sink that shows lines in a <code>StreamingTextArea</code>, colored by severity.
+ * Lines are handed to the area without locking and shown once per frame, so logging
+ * never waits on the Event Dispatch Thread. When more lines arrive in a frame than
+ * can be shown, the rest are dropped and counted, and a line saying how many were
+ * dropped is shown once there is room again.
+ * Add it with <code>Log.addSink</code>.
+ * @author milind
+ */
+public class LogConsole implements Log.Sink {
+
+  /**
+   * Most lines waiting to be shown before lines are dropped
+   */
+  private static final int FRAME_LINES = 1000;
+  private static final Severity[] SEVERITIES = Severity.values();
+
+  private final StreamingTextArea area;
+  private final int maxPending;
+  private volatile Color[] colors = {Color.GRAY, null, Color.ORANGE.darker(), Color.RED,
+                                     Color.RED.darker()};
+  /**
+   * Bit per severity ordinal of the severities that are shown
+   */
+  private volatile int shown = (1 << SEVERITIES.length) - 1;
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLongArray droppedBySeverity = new AtomicLongArray(SEVERITIES.length);
+
+  /**
+   * Creates a console that shows lines in the given area
+   * @param area Area to show lines in
+   */
+  public LogConsole(StreamingTextArea area) {
+    this.area = area;
+    // Lines past the area's size would be dropped without being counted
+    maxPending = Math.min(FRAME_LINES, area.getMaxLines());
+  }
+
+  /**
+   * Returns the area that lines are shown in
+   * @return The text area
+   */
+  public StreamingTextArea getArea() {
+    return area;
+  }
+
+  /**
+   * Sets the color of lines of a severity
+   * @param severity Severity to set the color for
+   * @param color Color of the lines, or <code>null</code> for the area's foreground color
+   */
+  public synchronized void setColor(Severity severity, Color color) {
+    final var copy = colors.clone();
+    copy[severity.ordinal()] = color;
+    colors = copy;
+  }
+
+  /**
+   * Sets whether lines of a severity are shown. Lines that aren't shown are still
+   * written to the other sinks.
+   * @param severity Severity to show or hide
+   * @param show Whether to show lines of the severity
+   */
+  public synchronized void setShown(Severity severity, boolean show) {
+    final int bit = 1 << severity.ordinal();
+    shown = show ? (shown | bit) : (shown & ~bit);
+  }
+
+  /**
+   * Returns whether lines of a severity are shown
+   * @param severity Severity to check
+   * @return Whether lines of the severity are shown
+   */
+  public boolean isShown(Severity severity) {
+    return (shown & (1 << severity.ordinal())) != 0;
+  }
+
+  @Override
+  public void write(Severity severity, CharSequence line) {
+    if (isShown(severity)) {
+      if (area.pendingLines() >= maxPending) {
+        droppedBySeverity.incrementAndGet(severity.ordinal());
+        dropped.incrementAndGet();
+      } else {
+        summarize();
+        area.appendLine(line, colors[severity.ordinal()]);
+      }
+    }
+  }
+
+  @Override
+  public void endBatch() {
+    if ((dropped.get() != 0) && (area.pendingLines() < maxPending)) {
+      summarize();
+    }
+  }
+
+  /**
+   * Shows how many lines were dropped since the last summary, if any were
+   */
+  private void summarize() {
+    if (dropped.get() != 0) {
+      final long total = dropped.getAndSet(0);
+      if (total != 0) {
+        final var summary = new StringBuilder("Dropped ").append(total).append(" logs (");
+        Severity worst = null;
+        for (var severity : SEVERITIES) {
+          final long n = droppedBySeverity.getAndSet(severity.ordinal(), 0);
+          if (n != 0) {
+            summary.append((worst != null) ? ", " : "").append(n).append(' ').append(severity);
+            worst = severity;
+          }
+        }
+        summary.append(')');
+        area.appendLine(summary,
+            (worst != null) ? colors[Math.max(worst.ordinal(), Severity.WARNING.ordinal())]
+                            : null);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,312 @@
+package swinglib;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model that shows the lines of a delimited (such as CSV) or
+ * fixed-width text file as rows.
+ * The file is memory-mapped instead of read, and only the start of each line is kept,
+ * in about 4 bytes per line, so opening a file only takes one pass over it, done in
+ * parallel for large files.
+ * Cells are decoded from the mapped file when the table shows them, so the file's
+ * contents are never copied onto the heap.
+ * Lines are read as UTF-8, and fixed widths are in bytes.
+ * @author milind
+ */
+public class MappedFileTableModel extends AbstractTableModel {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Size of each mapped region, since a single mapping can't be bigger than 2 GB
+   */
+  private static final int SEGMENT_BITS = 30;
+  private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+  /**
+   * Files at least this big are indexed by several threads
+   */
+  private static final long PARALLEL_CHUNK_SIZE = 16L << 20;
+  /**
+   * Lines are indexed in blocks, each with a full offset and a smaller offset per line
+   */
+  private static final int BLOCK_BITS = 10;
+  private static final int BLOCK_MASK = (1 << BLOCK_BITS) - 1;
+  /**
+   * Most lines an array can index
+   */
+  private static final int MAX_LINES = Integer.MAX_VALUE - 8;
+
+  /**
+   * Index of the lines that start in one part of the file, built by the thread that
+   * scanned that part so that the offsets are never gathered into one array
+   */
+  private static final class Chunk {
+    /**
+     * Offset of the first line of each block
+     */
+    private long[] blockStarts = new long[16];
+    /**
+     * Offset of each line from the first line of its block
+     */
+    private int[] lineOffsets = new int[1 << BLOCK_BITS];
+    private int lines = 0;
+    /**
+     * Row of the chunk's first line in the whole file
+     */
+    private int firstLine = 0;
+
+    private void add(long start) {
+      Log.check(lines < MAX_LINES, "File has too many lines");
+      final int block = lines >>> BLOCK_BITS;
+      if ((lines & BLOCK_MASK) == 0) {
+        if (block == blockStarts.length) {
+          blockStarts = Arrays.copyOf(blockStarts, 2 * block);
+        }
+        blockStarts[block] = start;
+      }
+      final long offset = start - blockStarts[block];
+      Log.checkLe(offset, (long) Integer.MAX_VALUE, "Lines are too long");
+      if (lines == lineOffsets.length) {
+        lineOffsets = Arrays.copyOf(lineOffsets, (int) Math.min(2L * lines, MAX_LINES));
+      }
+      lineOffsets[lines++] = (int) offset;
+    }
+
+    private void trim() {
+      blockStarts = Arrays.copyOf(blockStarts, (lines + BLOCK_MASK) >>> BLOCK_BITS);
+      lineOffsets = Arrays.copyOf(lineOffsets, lines);
+    }
+
+    private long lineStart(int line) {
+      return blockStarts[line >>> BLOCK_BITS] + lineOffsets[line];
+    }
+  }
+
+  private final transient MappedByteBuffer[] segments;
+  private final long size;
+  /**
+   * Line indexes of consecutive parts of the file
+   */
+  private final transient Chunk[] chunks;
+  private final int lines;
+  private final int firstRow;
+
+  private final char delimiter;
+  private final int[] widths;
+  private final String[] names;
+
+  // Last decoded row, since tables get a row's cells one after another. Only used on the EDT.
+  private int lastRow = -1;
+  private String[] lastCells = null;
+
+  /**
+   * Creates a table model for a delimited file
+   * @param path Path to the file
+   * @param delimiter Character between cells, such as <code>','</code>.
+   *                  Cells can be quoted with double quotes to contain it.
+   * @param header Whether the first line has the column names
+   * @throws IOException If the file can't be read
+   */
+  public MappedFileTableModel(String path, char delimiter, boolean header) throws IOException {
+    this(path, delimiter, null, header);
+  }
+
+  /**
+   * Creates a table model for a fixed-width file
+   * @param path Path to the file
+   * @param widths Width of each column in bytes. Cells are trimmed.
+   * @param header Whether the first line has the column names
+   * @throws IOException If the file can't be read
+   */
+  public MappedFileTableModel(String path, int[] widths, boolean header) throws IOException {
+    this(path, '\0', widths.clone(), header);
+  }
+
+  private MappedFileTableModel(String path, char delimiter, int[] widths, boolean header)
+      throws IOException {
+    this.delimiter = delimiter;
+    this.widths = widths;
+    try (var channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+      size = channel.size();
+      segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+      for (int i = 0; i < segments.length; i++) {
+        final long start = i * SEGMENT_SIZE;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+            Math.min(SEGMENT_SIZE, size - start));
+      }
+    }
+
+    chunks = indexLines();
+    long total = 0;
+    for (var chunk : chunks) {
+      chunk.firstLine = (int) Math.min(total, Integer.MAX_VALUE);
+      total += chunk.lines;
+    }
+    Log.checkLe(total, (long) MAX_LINES, "File has too many lines");
+    lines = (int) total;
+
+    firstRow = (header && (lines != 0)) ? 1 : 0;
+    final var first = (lines != 0) ? split(0) : new String[0];
+    names = new String[(widths != null) ? widths.length : first.length];
+    for (int c = 0; c < names.length; c++) {
+      names[c] = (header && (c < first.length)) ? first[c] : columnLetter(c);
+    }
+  }
+
+  /**
+   * Finds the offset of every line, splitting the file between threads if it's large
+   */
+  private Chunk[] indexLines() {
+    final int count = (int) Math.max(1,
+        Math.min(Runtime.getRuntime().availableProcessors(), size / PARALLEL_CHUNK_SIZE));
+    final long chunkSize = (size + count - 1) / count;
+    return IntStream.range(0, count).parallel()
+        .mapToObj(i -> indexLines(i * chunkSize, Math.min((i + 1) * chunkSize, size)))
+        .toArray(Chunk[]::new);
+  }
+
+  /**
+   * Indexes the lines that start in the range: the first line of the file, and
+   * lines after a newline
+   */
+  private Chunk indexLines(long start, long end) {
+    final var chunk = new Chunk();
+    if ((start == 0) && (size != 0)) {
+      chunk.add(0);
+    }
+    for (long pos = start; pos < end; pos++) {
+      // A newline at the very end doesn't start another line
+      if ((get(pos) == '\n') && ((pos + 1) < size)) {
+        chunk.add(pos + 1);
+      }
+    }
+    chunk.trim();
+    return chunk;
+  }
+
+  private byte get(long pos) {
+    return segments[(int) (pos >>> SEGMENT_BITS)].get((int) (pos & (SEGMENT_SIZE - 1)));
+  }
+
+  private long lineStart(int line) {
+    // Last chunk starting at or before the line, which skips empty chunks
+    int lo = 0;
+    int hi = chunks.length - 1;
+    while (lo < hi) {
+      final int mid = (lo + hi + 1) >>> 1;
+      if (chunks[mid].firstLine <= line) {
+        lo = mid;
+      } else {
+        hi = mid - 1;
+      }
+    }
+    return chunks[lo].lineStart(line - chunks[lo].firstLine);
+  }
+
+  /**
+   * Returns a line's bytes, without its line separator
+   */
+  private byte[] line(int line) {
+    final long start = lineStart(line);
+    long end = ((line + 1) < lines) ? (lineStart(line + 1) - 1) : size;
+    if ((end > start) && (get(end - 1) == '\n')) {
+      end--;
+    }
+    if ((end > start) && (get(end - 1) == '\r')) {
+      end--;
+    }
+    final var bytes = new byte[(int) (end - start)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = get(start + i);
+    }
+    return bytes;
+  }
+
+  private String[] split(int line) {
+    final var bytes = line(line);
+    return (widths != null) ? splitFixed(bytes) : splitDelimited(bytes);
+  }
+
+  private String[] splitFixed(byte[] bytes) {
+    final var cells = new String[widths.length];
+    int start = 0;
+    for (int c = 0; c < widths.length; c++) {
+      final int from = Math.min(start, bytes.length);
+      final int to = Math.min(start + widths[c], bytes.length);
+      cells[c] = new String(bytes, from, to - from, StandardCharsets.UTF_8).trim();
+      start += widths[c];
+    }
+    return cells;
+  }
+
+  private String[] splitDelimited(byte[] bytes) {
+    final var line = new String(bytes, StandardCharsets.UTF_8);
+    final var cells = new ArrayList<String>();
+    final var cell = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      final char ch = line.charAt(i);
+      if (quoted) {
+        if (ch != '"') {
+          cell.append(ch);
+        } else if (((i + 1) < line.length()) && (line.charAt(i + 1) == '"')) {
+          cell.append('"'); // Escaped quote
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (ch == '"') {
+        quoted = true;
+      } else if (ch == delimiter) {
+        cells.add(cell.toString());
+        cell.setLength(0);
+      } else {
+        cell.append(ch);
+      }
+    }
+    cells.add(cell.toString());
+    return cells.toArray(new String[0]);
+  }
+
+  private static String columnLetter(int column) {
+    final var sb = new StringBuilder();
+    for (int c = column + 1; c > 0; c = (c - 1) / 26) {
+      sb.append((char) ('A' + ((c - 1) % 26)));
+    }
+    return sb.reverse().toString();
+  }
+
+  @Override
+  public int getRowCount() {
+    return lines - firstRow;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return names.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return names[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    if (row != lastRow) {
+      lastCells = split(row + firstRow);
+      lastRow = row;
+    }
+    return (column < lastCells.length) ? lastCells[column] : null;
+  }
+
+}
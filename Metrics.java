@@ -0,0 +1,347 @@
+package swinglib;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Registry of named counters, gauges, and histograms for seeing what a program is doing.
+ * swinglib records its own metrics while metrics are enabled, which they aren't by default.
+ * When disabled, the built in instrumentation only costs a volatile read.
+ * @author milind
+ */
+public final class Metrics {
+
+  private Metrics() {} // Don't let anyone instantiate
+
+  /**
+   * Count that can be added to from many threads without contention
+   * @author milind
+   */
+  public static final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    private Counter() {}
+
+    /**
+     * Adds one to the count
+     */
+    public void increment() {
+      count.increment();
+    }
+
+    /**
+     * Adds to the count
+     * @param n Amount to add
+     */
+    public void add(long n) {
+      count.add(n);
+    }
+
+    /**
+     * Returns the count
+     * @return Sum of everything added so far
+     */
+    public long get() {
+      return count.sum();
+    }
+
+    @Override
+    public String toString() {
+      return Long.toString(get());
+    }
+  }
+
+  /**
+   * Value that is read whenever metrics are dumped
+   * @author milind
+   */
+  public static final class Gauge {
+    private final LongSupplier value;
+
+    private Gauge(LongSupplier value) {
+      this.value = value;
+    }
+
+    /**
+     * Returns the current value
+     * @return The value
+     */
+    public long get() {
+      return value.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+      return Long.toString(get());
+    }
+  }
+
+  /**
+   * Distribution of non-negative values, such as latencies in nanoseconds.
+   * Values are counted in buckets that get wider as values get bigger, so every value
+   * is kept to within about 6% no matter how large it is. Each thread records into one
+   * of a few stripes of buckets, so threads rarely contend with each other.
+   * @author milind
+   */
+  public static final class Histogram {
+    /**
+     * Each power of two is split into <code>2^SUB_BITS</code> buckets
+     */
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+    private static final int STRIPES =
+        Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 8));
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    private Histogram() {
+      for (int i = 0; i < STRIPES; i++) {
+        stripes[i] = new AtomicLongArray(BUCKETS);
+      }
+    }
+
+    /**
+     * Records a value
+     * @param value Value to record. Negative values are counted as 0.
+     */
+    public void record(long value) {
+      final long v = Math.max(value, 0);
+      final var stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+      stripe.incrementAndGet(bucket(v));
+      sum.add(v);
+      long m;
+      while ((v > (m = max.get())) && !max.compareAndSet(m, v)) {
+        // Try again with the new max
+      }
+    }
+
+    /**
+     * Records the time since a start time
+     * @param startNanos Start time from <code>System.nanoTime</code>
+     */
+    public void recordSince(long startNanos) {
+      record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the number of recorded values
+     * @return The count
+     */
+    public long count() {
+      long count = 0;
+      for (var stripe : stripes) {
+        for (int i = 0; i < BUCKETS; i++) {
+          count += stripe.get(i);
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Returns the mean of the recorded values
+     * @return The mean, or 0 if nothing was recorded
+     */
+    public double mean() {
+      final long count = count();
+      return (count != 0) ? ((double) sum.sum() / count) : 0;
+    }
+
+    /**
+     * Returns the largest recorded value
+     * @return The exact maximum, or 0 if nothing was recorded
+     */
+    public long max() {
+      return max.get();
+    }
+
+    /**
+     * Returns a percentile of the recorded values
+     * @param percentile Percentile from 0 to 100
+     * @return The lowest value in the bucket containing the percentile,
+     *         or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+      final var counts = new long[BUCKETS];
+      long count = 0;
+      for (var stripe : stripes) {
+        for (int i = 0; i < BUCKETS; i++) {
+          final long n = stripe.get(i);
+          counts[i] += n;
+          count += n;
+        }
+      }
+      final long rank = (long) Math.ceil((percentile / 100) * count);
+      long seen = 0;
+      int i = 0;
+      while ((i < BUCKETS) && ((seen += counts[i]) < Math.max(rank, 1))) {
+        i++;
+      }
+      return (count != 0) ? Math.min(lowestValue(i), max()) : 0;
+    }
+
+    private static int bucket(long v) {
+      int bucket;
+      if (v < SUB_BUCKETS) {
+        bucket = (int) v;
+      } else {
+        final int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(v)) - SUB_BITS;
+        bucket = ((shift + 1) << SUB_BITS) + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+      }
+      return bucket;
+    }
+
+    private static long lowestValue(int bucket) {
+      long value;
+      if (bucket < SUB_BUCKETS) {
+        value = bucket;
+      } else {
+        final int shift = (bucket >> SUB_BITS) - 1;
+        value = ((long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1)))) << shift;
+      }
+      return value;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d p99.9=%d max=%d", count(),
+          mean(), percentile(50), percentile(90), percentile(99), percentile(99.9), max());
+    }
+  }
+
+  private static volatile boolean enabled = false;
+  private static final ConcurrentSkipListMap<String, Object> metrics =
+      new ConcurrentSkipListMap<>();
+  private static ScheduledExecutorService dumper = null;
+  private static ScheduledFuture<?> dump = null;
+
+  /**
+   * Time button handlers take to run, in nanoseconds
+   */
+  static final Histogram ACTION_NANOS = histogram("swinglib.screen.action_nanos");
+  /**
+   * Time <code>AbstractScreen.paintComponent</code> takes, in nanoseconds
+   */
+  static final Histogram PAINT_NANOS = histogram("swinglib.screen.paint_nanos");
+  /**
+   * Time from <code>AudioMixer.play</code> to the sound reaching the output, in nanoseconds
+   */
+  static final Histogram AUDIO_START_NANOS = histogram("swinglib.audio.start_nanos");
+  /**
+   * Logs written, indexed by severity ordinal
+   */
+  private static final Counter[] LOGS = new Counter[Log.Severity.values().length];
+
+  static {
+    for (var severity : Log.Severity.values()) {
+      LOGS[severity.ordinal()] = counter("swinglib.log." + severity.name().toLowerCase());
+    }
+  }
+
+  /**
+   * Sets whether swinglib records its own metrics
+   * @param enable Whether to record metrics
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /**
+   * Returns whether swinglib records its own metrics
+   * @return Whether metrics are enabled
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the counter with the given name, creating it if needed
+   * @param name Name of the counter
+   * @return The counter
+   */
+  public static Counter counter(String name) {
+    return get(name, Counter.class, Counter::new);
+  }
+
+  /**
+   * Registers a gauge, replacing any gauge with the same name
+   * @param name Name of the gauge
+   * @param value Function that returns the gauge's value
+   * @return The gauge
+   */
+  public static Gauge gauge(String name, LongSupplier value) {
+    final var gauge = new Gauge(value);
+    final var old = metrics.put(name, gauge);
+    Log.check((old == null) || (old instanceof Gauge), "Metric", name, "isn't a gauge");
+    return gauge;
+  }
+
+  /**
+   * Returns the histogram with the given name, creating it if needed
+   * @param name Name of the histogram
+   * @return The histogram
+   */
+  public static Histogram histogram(String name) {
+    return get(name, Histogram.class, Histogram::new);
+  }
+
+  private static <M> M get(String name, Class<M> cls, Supplier<M> create) {
+    var metric = metrics.get(name);
+    if (metric == null) {
+      metric = metrics.computeIfAbsent(name, n -> create.get());
+    }
+    Log.check(cls.isInstance(metric), "Metric", name, "isn't a", cls.getSimpleName());
+    return cls.cast(metric);
+  }
+
+  /**
+   * Logs the current value of every metric as info severity
+   */
+  public static void dump() {
+    for (var entry : metrics.entrySet()) {
+      Log.info(entry.getKey() + ':', entry.getValue());
+    }
+  }
+
+  /**
+   * Logs every metric periodically from a background thread
+   * @param period Time between dumps, or <code>Duration.ZERO</code> to stop dumping
+   */
+  public static synchronized void dumpEvery(Duration period) {
+    if (dump != null) {
+      dump.cancel(false);
+      dump = null;
+    }
+    if (!period.isZero()) {
+      if (dumper == null) {
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+          final var thread = new Thread(r, "swinglib-metrics-dump");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+      final long nanos = period.toNanos();
+      dump = dumper.scheduleAtFixedRate(Metrics::dump, nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Counts a written log
+   * @param severity Severity of the log
+   */
+  static void logged(Log.Severity severity) {
+    LOGS[severity.ordinal()].increment();
+  }
+
+}
@@ -0,0 +1,181 @@
+package swinglib;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table model that loads rows from a data source as they are shown.
+ * Rows are fetched a page at a time on background threads when the table first
+ * asks for them, which it only does for the rows in view, along with the pages
+ * around them. Loaded pages are kept in a least recently used cache with a fixed
+ * budget of rows, so memory use stays the same no matter how many rows there are.
+ * Cells of pages that are still loading show <code>LOADING</code>.
+ * @author milind
+ */
+public class PagedTableModel extends AbstractTableModel {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Rows that a table can show without having them all in memory
+   * @author milind
+   */
+  public static interface Source {
+
+    /**
+     * Returns the total number of rows
+     * @return Number of rows
+     */
+    int rowCount();
+
+    /**
+     * Fetches a range of rows. Called from a background thread.
+     * If it throws or returns the wrong number of rows, the error is logged and
+     * the rows are fetched again the next time they are shown.
+     * @param first Index of the first row to fetch
+     * @param count Number of rows to fetch
+     * @return The rows, each with one cell per column
+     */
+    Object[][] fetch(int first, int count);
+  }
+
+  /**
+   * Value of cells that haven't been loaded yet
+   */
+  public static final String LOADING = "...";
+  /**
+   * Number of rows fetched at a time
+   */
+  public static final int PAGE_SIZE = 256;
+  /**
+   * Number of pages before and after a requested page that are also loaded
+   */
+  private static final int PREFETCH_PAGES = 1;
+  private static final ExecutorService LOADERS = Executors.newFixedThreadPool(2, r -> {
+    final var thread = new Thread(r, "swinglib-page-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final transient Source source;
+  private final String[] names;
+  private final int maxPages;
+  private int rows;
+
+  // Only used on the EDT
+  private final transient LinkedHashMap<Integer, Object[][]> pages;
+  private final transient HashSet<Integer> loading = new HashSet<>();
+  /**
+   * Incremented by <code>refresh</code> so pages fetched before it are thrown away
+   */
+  private int generation = 0;
+
+  /**
+   * Creates a table model for the given source
+   * @param source Source to fetch rows from
+   * @param cacheRows Most rows to keep in memory, rounded up to whole pages.
+   *                  Should be more than the number of rows in view.
+   * @param cols Column labels
+   */
+  public PagedTableModel(Source source, int cacheRows, Object... cols) {
+    Log.checkGt(cacheRows, 0, "Cache must hold at least one row");
+    this.source = source;
+    names = new String[cols.length];
+    for (int c = 0; c < cols.length; c++) {
+      names[c] = String.valueOf(cols[c]);
+    }
+    // Always keep room for a page and its prefetched neighbors
+    maxPages = Math.max((cacheRows + PAGE_SIZE - 1) / PAGE_SIZE, 2 * PREFETCH_PAGES + 1);
+    pages = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+        return size() > maxPages;
+      }
+    };
+    rows = source.rowCount();
+  }
+
+  /**
+   * Drops all loaded rows and reads the row count again, for when the source changes.
+   * Must be called on the EDT.
+   */
+  public void refresh() {
+    generation++;
+    pages.clear();
+    loading.clear();
+    rows = source.rowCount();
+    fireTableDataChanged();
+  }
+
+  @Override
+  public int getRowCount() {
+    return rows;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return names.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return names[column];
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    final int page = row / PAGE_SIZE;
+    final var cells = pages.get(page);
+    Object value = LOADING;
+    if (cells != null) {
+      value = cells[row - (page * PAGE_SIZE)][column];
+    } else {
+      // Load the neighbors too, so scrolling a little doesn't show loading cells
+      for (int p = page - PREFETCH_PAGES; p <= (page + PREFETCH_PAGES); p++) {
+        load(p);
+      }
+    }
+    return value;
+  }
+
+  private void load(int page) {
+    final int first = page * PAGE_SIZE;
+    if ((page >= 0) && (first < rows) && !pages.containsKey(page) && loading.add(page)) {
+      final int count = Math.min(PAGE_SIZE, rows - first);
+      final int gen = generation;
+      LOADERS.execute(() -> {
+        Object[][] cells = null;
+        try {
+          cells = source.fetch(first, count);
+          if ((cells != null) && (cells.length != count)) {
+            // Left unloaded like a failed fetch, so it's fetched again when shown
+            Log.error("Source fetched", cells.length, "rows instead of", count, "at row", first);
+            cells = null;
+          }
+        } catch (RuntimeException e) {
+          Log.error("Failed to fetch rows", first, "to", first + count, e);
+        }
+        final var fetched = cells;
+        SwingUtilities.invokeLater(() -> loaded(gen, page, first, count, fetched));
+      });
+    }
+  }
+
+  private void loaded(int gen, int page, int first, int count, Object[][] cells) {
+    if (gen == generation) {
+      loading.remove(page);
+      if (cells != null) {
+        pages.put(page, cells);
+        fireTableRowsUpdated(first, first + count - 1);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+package swinglib;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Compares how long it takes to paint a screen's background and title when
+ * the title is drawn every frame and when it is copied from the cache, for the
+ * whole screen, the strip with the title, and the area of a button being repainted.
+ * Renders into a <code>BufferedImage</code>, so it can be run headless with
+ * <code>-Djava.awt.headless=true</code>.
+ * @author milind
+ */
+final class PaintBenchmark {
+
+  private static final int FRAMES = 2_000;
+  private static final int RUNS = 5;
+
+  private PaintBenchmark() {}
+
+  private static final class Screen extends AbstractScreen {
+    private static final long serialVersionUID = 1L;
+
+    Screen() {
+      super("Paint Benchmark");
+    }
+
+    /**
+     * Paints the background and title the way they were painted before they were cached
+     */
+    void paintUncached(Graphics2D g) {
+      getUI().update(g, this);
+      g.setColor(BG_COLOR);
+      g.fillRect(0, 0, WIDTH, HEIGHT);
+      g.setColor(Color.DARK_GRAY);
+      g.setFont(Fonts.EXTRA_LARGE);
+      drawStringCentered(g, "Paint Benchmark", HEIGHT / 7);
+    }
+  }
+
+  private static void run(String name, Rectangle clip, Consumer<Graphics2D> paint) {
+    final var image = new BufferedImage(AbstractScreen.WIDTH, AbstractScreen.HEIGHT,
+                                        BufferedImage.TYPE_INT_RGB);
+    double best = Double.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      final long start = System.nanoTime();
+      for (int frame = 0; frame < FRAMES; frame++) {
+        final var g = image.createGraphics();
+        g.setClip(clip);
+        paint.accept(g);
+        g.dispose();
+      }
+      best = Math.min(best, (System.nanoTime() - start) / (double)FRAMES);
+    }
+    System.out.printf("%-24s %,10.1f us/frame%n", name, best / 1e3);
+  }
+
+  /**
+   * Runs the benchmark
+   * @param args Not using command line args
+   */
+  public static void main(String[] args) throws Exception {
+    SwingUtilities.invokeAndWait(() -> {
+      final var screen = new Screen();
+      final var full = new Rectangle(0, 0, AbstractScreen.WIDTH, AbstractScreen.HEIGHT);
+      final var button = new Rectangle(AbstractScreen.centeredX(AbstractScreen.STD_BUTTON_WIDTH),
+          AbstractScreen.HEIGHT / 2, AbstractScreen.STD_BUTTON_WIDTH,
+          AbstractScreen.STD_BUTTON_HEIGHT);
+      run("Uncached, whole screen", full, screen::paintUncached);
+      run("Cached, whole screen", full, screen::paintComponent);
+      final var title = new Rectangle(0, 0, AbstractScreen.WIDTH, AbstractScreen.HEIGHT / 5);
+      run("Uncached, title", title, screen::paintUncached);
+      run("Cached, title", title, screen::paintComponent);
+      run("Uncached, button", button, screen::paintUncached);
+      run("Cached, button", button, screen::paintComponent);
+    });
+  }
+
+}
@@ -0,0 +1,127 @@
+package swinglib;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Decodes audio a chunk at a time into 16-bit stereo samples at the mixer's sample rate.
+ * Mono is played on both channels, channels past stereo are dropped, and other sample rates
+ * are converted by linear interpolation between the nearest frames.
+ * @author milind
+ */
+final class PcmReader implements Closeable {
+
+  private static final int CHANNELS = 2;
+  /**
+   * Source frames read at a time
+   */
+  private static final int READ_FRAMES = 4096;
+
+  private final AudioInputStream in;
+  private final int channels;
+  /**
+   * Source frames per output frame
+   */
+  private final double step;
+  private final byte[] bytes;
+  /**
+   * Stereo source frames that haven't been passed yet
+   */
+  private short[] frames = new short[(READ_FRAMES + 1) * CHANNELS];
+  private int count = 0;
+  /**
+   * Position of the next output frame, in source frames from the start of <code>frames</code>
+   */
+  private double position = 0;
+  private boolean ended = false;
+
+  PcmReader(AudioInputStream source) {
+    final var format = source.getFormat();
+    channels = format.getChannels();
+    in = AudioSystem.getAudioInputStream(
+        new AudioFormat(format.getSampleRate(), 16, channels, true, false), source);
+    step = format.getSampleRate() / AudioMixer.FORMAT.getSampleRate();
+    bytes = new byte[READ_FRAMES * 2 * channels];
+  }
+
+  /**
+   * Skips output frames. Must be called before anything is read.
+   * @param skip Number of frames to skip
+   */
+  void skip(long skip) throws IOException {
+    long remaining = (long) (skip * step) * 2 * channels;
+    while ((remaining > 0) && !ended) {
+      long skipped = in.skip(remaining);
+      if (skipped <= 0) {
+        // Some streams can't skip, so read past the frames instead
+        skipped = in.readNBytes(bytes, 0, (int) Math.min(remaining, bytes.length));
+        ended = (skipped == 0);
+      }
+      remaining -= skipped;
+    }
+  }
+
+  /**
+   * Decodes output frames
+   * @param samples Array to put the stereo samples in
+   * @param offset Frame of the array to start at
+   * @param max Most frames to decode
+   * @return Number of frames decoded, which is only 0 at the end of the audio
+   */
+  int read(short[] samples, int offset, int max) throws IOException {
+    int f = 0;
+    while (f < max) {
+      final int before = (int) position;
+      if (((before + 1) >= count) && !ended) {
+        ended = !fill();
+      } else if (before >= count) {
+        break;
+      } else {
+        final int after = Math.min(before + 1, count - 1);
+        final double t = position - before;
+        for (int c = 0; c < CHANNELS; c++) {
+          final int a = frames[(before * CHANNELS) + c];
+          final int b = frames[(after * CHANNELS) + c];
+          samples[((offset + f) * CHANNELS) + c] = (short) Math.round(a + ((b - a) * t));
+        }
+        position += step;
+        f++;
+      }
+    }
+    return f;
+  }
+
+  /**
+   * Reads more source frames, dropping the ones that have been passed
+   * @return Whether any frames were read
+   */
+  private boolean fill() throws IOException {
+    final int passed = Math.min((int) position, count);
+    System.arraycopy(frames, passed * CHANNELS, frames, 0, (count - passed) * CHANNELS);
+    count -= passed;
+    position -= passed;
+
+    final int read = in.readNBytes(bytes, 0, bytes.length) / (2 * channels);
+    if (((count + read) * CHANNELS) > frames.length) {
+      frames = Arrays.copyOf(frames, (count + read) * CHANNELS);
+    }
+    for (int f = 0; f < read; f++) {
+      for (int c = 0; c < CHANNELS; c++) {
+        final int i = 2 * ((f * channels) + Math.min(c, channels - 1));
+        frames[((count + f) * CHANNELS) + c] = (short) ((bytes[i] & 0xff) | (bytes[i + 1] << 8));
+      }
+    }
+    count += read;
+    return read > 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+}
@@ -0,0 +1,111 @@
+package swinglib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Each slot has a sequence number that tells producers and the consumer
+ * whose turn it is to use the slot, so no locks are needed on either side.
+ * @author milind
+ * @param <E> Class of the queued elements
+ */
+final class RingBuffer<E> {
+
+  private final Object[] elements;
+  private final AtomicLongArray sequences;
+  private final int mask;
+
+  /**
+   * Next position to be claimed by a producer
+   */
+  private final AtomicLong tail = new AtomicLong();
+  /**
+   * Next position to be read by the consumer
+   */
+  private volatile long head;
+
+  /**
+   * Creates a ring buffer that holds at least the given number of elements
+   * @param capacity Minimum capacity, rounded up to a power of two
+   */
+  RingBuffer(int capacity) {
+    Log.checkGt(capacity, 0, "Capacity must be positive");
+    final int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+    elements = new Object[size];
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Adds an element if there is space. Safe to call from any thread.
+   * @param e Element to add
+   * @return Whether the element was added, <code>false</code> if the buffer is full
+   */
+  boolean offer(E e) {
+    long pos = tail.get();
+    while (true) {
+      final long diff = sequences.get((int) pos & mask) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        return false; // Consumer hasn't freed this slot yet
+      } else {
+        pos = tail.get(); // Another producer claimed it first
+      }
+    }
+    final int i = (int) pos & mask;
+    elements[i] = e;
+    sequences.set(i, pos + 1); // Publishes the element to the consumer
+    return true;
+  }
+
+  /**
+   * Removes the oldest element. Must only be called from the consumer thread.
+   * @return The removed element, or <code>null</code> if the buffer is empty
+   */
+  @SuppressWarnings("unchecked")
+  E poll() {
+    final long pos = head;
+    final int i = (int) pos & mask;
+    if (sequences.get(i) != pos + 1) {
+      return null;
+    }
+    final var e = (E) elements[i];
+    elements[i] = null;
+    sequences.set(i, pos + elements.length); // Hands the slot back to producers
+    head = pos + 1;
+    return e;
+  }
+
+  /**
+   * Returns the number of elements that have been added so far
+   * @return Total number of added elements
+   */
+  long produced() {
+    return tail.get();
+  }
+
+  /**
+   * Returns the number of elements that have been removed so far
+   * @return Total number of removed elements
+   */
+  long consumed() {
+    return head;
+  }
+
+  /**
+   * Returns whether there is nothing left to remove
+   * @return Whether the buffer is empty
+   */
+  boolean isEmpty() {
+    return head == tail.get();
+  }
+
+}
@@ -0,0 +1,181 @@
+package swinglib;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Process-wide cache of decoded sounds, so a file opened by several screens is
+ * only read and decoded once. Sounds are reference counted: each <code>acquire</code>
+ * must be matched by a <code>release</code>. When the decoded sounds take more memory
+ * than the budget, the least recently used ones that aren't acquired are dropped.
+ * Can be used from any thread.
+ * @author milind
+ */
+public final class SoundCache {
+
+  private static final long DEFAULT_BUDGET = 64L << 20;
+
+  /**
+   * Threads that sounds are loaded on in the background
+   */
+  static final ExecutorService LOADERS = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), r -> {
+        final var thread = new Thread(r, "swinglib-sound-loader");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private static final class Entry {
+    final CompletableFuture<AudioMixer.Sound> sound = new CompletableFuture<>();
+    // Guarded by entries
+    int refs = 0;
+    long bytes = 0;
+  }
+
+  // Guarded by itself. In least recently used order.
+  private static final LinkedHashMap<String, Entry> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private static long cachedBytes = 0;
+  private static long budget = DEFAULT_BUDGET;
+
+  private SoundCache() {}
+
+  /**
+   * Sets the most memory that decoded sounds that aren't acquired can take.
+   * Acquired sounds are kept even if they take more.
+   * @param bytes Memory budget in bytes
+   */
+  public static void setBudget(long bytes) {
+    Log.checkGe(bytes, 0L, "Budget can't be negative");
+    synchronized (entries) {
+      budget = bytes;
+      evict();
+    }
+  }
+
+  /**
+   * Returns a sound, decoding it if it isn't cached. Waits for the sound if another
+   * thread is decoding it.
+   * @param path Path to the sound file
+   * @return The decoded sound
+   * @throws IOException If the file can't be read
+   * @throws UnsupportedAudioFileException If the file's format isn't supported
+   */
+  public static AudioMixer.Sound acquire(String path)
+      throws IOException, UnsupportedAudioFileException {
+    final var key = key(path);
+    Entry entry;
+    boolean load;
+    synchronized (entries) {
+      entry = entries.get(key);
+      load = (entry == null);
+      if (load) {
+        entry = new Entry();
+        entries.put(key, entry);
+      }
+      entry.refs++;
+    }
+    if (load) {
+      load(key, entry);
+    }
+
+    try {
+      return entry.sound.join();
+    } catch (CompletionException e) {
+      // The failed entry may already be replaced by a newer one for the same path
+      release(entry);
+      if (e.getCause() instanceof UnsupportedAudioFileException) {
+        throw (UnsupportedAudioFileException) e.getCause();
+      }
+      throw (e.getCause() instanceof IOException) ? (IOException) e.getCause()
+                                                  : new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Releases a sound returned by <code>acquire</code>, letting it be dropped
+   * once nothing else has it acquired
+   * @param path Path that the sound was acquired with
+   */
+  public static void release(String path) {
+    synchronized (entries) {
+      release(entries.get(key(path)));
+    }
+  }
+
+  private static void release(Entry entry) {
+    synchronized (entries) {
+      if ((entry != null) && (entry.refs > 0)) {
+        entry.refs--;
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Decodes sounds in parallel in the background, so they are cached when opened
+   * @param paths Paths to the sound files
+   * @return Future that completes once every sound is decoded, or with the
+   *         first error if any can't be
+   */
+  public static CompletableFuture<Void> preload(String... paths) {
+    return CompletableFuture.allOf(Arrays.stream(paths)
+        .map(path -> CompletableFuture.runAsync(() -> {
+          try {
+            acquire(path);
+            release(path);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          } catch (UnsupportedAudioFileException e) {
+            throw new CompletionException(e);
+          }
+        }, LOADERS))
+        .toArray(CompletableFuture[]::new));
+  }
+
+  private static String key(String path) {
+    return Paths.get(path).toAbsolutePath().normalize().toString();
+  }
+
+  private static void load(String key, Entry entry) {
+    try {
+      final var sound = AudioMixer.load(key);
+      synchronized (entries) {
+        entry.bytes = sound.bytes();
+        cachedBytes += entry.bytes;
+        evict();
+      }
+      entry.sound.complete(sound);
+    } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+      synchronized (entries) {
+        // Let the next acquire try again
+        entries.remove(key, entry);
+      }
+      entry.sound.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Drops the least recently used sounds that aren't acquired until the rest fit
+   * in the budget. Must hold the lock on entries.
+   */
+  private static void evict() {
+    final var it = entries.values().iterator();
+    while ((cachedBytes > budget) && it.hasNext()) {
+      final var entry = it.next();
+      if ((entry.refs == 0) && entry.sound.isDone()) {
+        cachedBytes -= entry.bytes;
+        it.remove();
+      }
+    }
+  }
+
+}
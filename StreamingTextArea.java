@@ -0,0 +1,260 @@
+package swinglib;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+
+/**
+ * Read-only text area for a live stream of lines, such as a log, that only keeps the last lines.
+ * Lines are kept in a ring buffer instead of a <code>Document</code>, so adding a line
+ * and dropping the oldest one take constant time, and painting only draws the lines in view.
+ * Lines can be added from any thread. They are queued without locking and added
+ * on the Event Dispatch Thread once per frame, so the area updates at most once per frame
+ * no matter how quickly lines arrive. Should be shown in a <code>JScrollPane</code>,
+ * which follows new lines while it is scrolled to the bottom.
+ * @author milind
+ */
+public class StreamingTextArea extends JComponent implements Scrollable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Time between updates, for about 60 updates a second
+   */
+  private static final int FRAME_MILLIS = 16;
+  private static final int INSET = 4;
+
+  private static final class Line {
+    final String text;
+    final Color color;
+
+    Line(String text, Color color) {
+      this.text = text;
+      this.color = color;
+    }
+  }
+
+  private final int maxLines;
+  private final transient ConcurrentLinkedQueue<Line> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final Timer timer = new Timer(FRAME_MILLIS, e -> update());
+
+  // Ring buffer of shown lines. Only used on the EDT.
+  private final String[] lines;
+  private final Color[] colors;
+  private int head = 0;
+  private int count = 0;
+  private int width = 0;
+
+  /**
+   * Creates a text area
+   * @param font Font of the text
+   * @param maxLines Most lines to keep. Older lines are dropped.
+   */
+  public StreamingTextArea(Font font, int maxLines) {
+    Log.checkGt(maxLines, 0, "Text area must keep at least one line");
+    this.maxLines = maxLines;
+    lines = new String[maxLines];
+    colors = new Color[maxLines];
+    setFont(font);
+    setOpaque(true);
+    setBackground(UIManager.getColor("TextArea.background"));
+    setForeground(UIManager.getColor("TextArea.foreground"));
+  }
+
+  /**
+   * Adds a line to the end, in the foreground color. Can be called from any thread.
+   * @param line Text of the line
+   */
+  public void appendLine(CharSequence line) {
+    appendLine(line, null);
+  }
+
+  /**
+   * Adds a line to the end. Can be called from any thread.
+   * @param line Text of the line
+   * @param color Color of the line, or <code>null</code> for the foreground color
+   */
+  public void appendLine(CharSequence line, Color color) {
+    pending.add(new Line(line.toString(), color));
+    // Lines older than the last maxLines would be dropped anyway
+    if (pendingCount.incrementAndGet() > maxLines) {
+      if (pending.poll() != null) {
+        pendingCount.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Returns the most lines that are kept
+   * @return Maximum number of lines
+   */
+  public int getMaxLines() {
+    return maxLines;
+  }
+
+  /**
+   * Returns the number of lines waiting for the next update
+   */
+  int pendingLines() {
+    return pendingCount.get();
+  }
+
+  /**
+   * Removes every line. Must be called on the EDT.
+   */
+  public void clear() {
+    update();
+    head = 0;
+    count = 0;
+    width = 0;
+    Arrays.fill(lines, null);
+    Arrays.fill(colors, null);
+    revalidate();
+    repaint();
+  }
+
+  /**
+   * Returns the shown lines, oldest first. Must be called on the EDT.
+   * @return Copy of the lines
+   */
+  public List<String> getLines() {
+    final var copy = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      copy.add(line(i));
+    }
+    return copy;
+  }
+
+  private String line(int index) {
+    return lines[(head + index) % maxLines];
+  }
+
+  private int lineHeight() {
+    return getFontMetrics(getFont()).getHeight();
+  }
+
+  /**
+   * Adds the queued lines
+   */
+  private void update() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    final var viewport = (getParent() instanceof JViewport) ? (JViewport) getParent() : null;
+    final var view = getVisibleRect();
+    final boolean atBottom = (view.y + view.height) >= (getHeight() - lineHeight());
+
+    final var metrics = getFontMetrics(getFont());
+    int dropped = 0;
+    Line line;
+    while ((line = pending.poll()) != null) {
+      pendingCount.decrementAndGet();
+      final int index = (head + count) % maxLines;
+      if (count < maxLines) {
+        count++;
+      } else {
+        head = (head + 1) % maxLines;
+        dropped++;
+      }
+      lines[index] = line.text;
+      colors[index] = line.color;
+      width = Math.max(width, metrics.stringWidth(line.text));
+    }
+
+    revalidate();
+    repaint();
+    if (viewport != null) {
+      final int lineHeight = lineHeight();
+      final var size = getPreferredSize();
+      if (atBottom) {
+        viewport.setViewSize(size);
+        viewport.setViewPosition(new Point(view.x,
+            Math.max(0, size.height - viewport.getExtentSize().height)));
+      } else if (dropped != 0) {
+        // Keep the same lines in view when older ones are dropped
+        viewport.setViewSize(size);
+        viewport.setViewPosition(new Point(view.x,
+            Math.max(0, view.y - (dropped * lineHeight))));
+      }
+    }
+  }
+
+  @Override
+  public void addNotify() {
+    super.addNotify();
+    timer.start();
+  }
+
+  @Override
+  public void removeNotify() {
+    timer.stop();
+    super.removeNotify();
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    return new Dimension(width + (2 * INSET), count * lineHeight());
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    final var clip = g.getClipBounds();
+    if (isOpaque()) {
+      g.setColor(getBackground());
+      g.fillRect(clip.x, clip.y, clip.width, clip.height);
+    }
+    g.setFont(getFont());
+    final var metrics = g.getFontMetrics();
+    final int lineHeight = metrics.getHeight();
+    final int first = Math.max(0, clip.y / lineHeight);
+    final int last = Math.min(count - 1, (clip.y + clip.height) / lineHeight);
+    for (int i = first; i <= last; i++) {
+      final var color = colors[(head + i) % maxLines];
+      g.setColor((color != null) ? color : getForeground());
+      g.drawString(line(i), INSET, (i * lineHeight) + metrics.getAscent());
+    }
+  }
+
+  @Override
+  public Dimension getPreferredScrollableViewportSize() {
+    return getPreferredSize();
+  }
+
+  @Override
+  public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return (orientation == SwingConstants.VERTICAL) ? lineHeight() : INSET * 4;
+  }
+
+  @Override
+  public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+    return (orientation == SwingConstants.VERTICAL) ? visibleRect.height : visibleRect.width;
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportWidth() {
+    return (getParent() instanceof JViewport)
+        && (getParent().getWidth() > getPreferredSize().width);
+  }
+
+  @Override
+  public boolean getScrollableTracksViewportHeight() {
+    return (getParent() instanceof JViewport)
+        && (getParent().getHeight() > getPreferredSize().height);
+  }
+
+}
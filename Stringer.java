@@ -1,16 +1,86 @@
 package swinglib;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 
 /**
  * Class that implements a <code>toString</code> method for objects automatically.
  * Other classes can inherit from this one to automatically have a <code>toString</code>,
  * or they can call the static <code>toString</code> method below.
+ * Fields are looked up once per class, so later calls don't use reflection.
  * @author milind
  */
 public abstract class Stringer {
 
+  /**
+   * Appends the fields of objects of one class
+   */
+  private static final class Formatter {
+    private final String name;
+    /**
+     * "field=" for each field, with ", " before all but the first
+     */
+    private final String[] prefixes;
+    /**
+     * (StringBuilder, Object)void handles that append each field's value
+     */
+    private final MethodHandle[] appenders;
+    /**
+     * Length of the last string, so the builder usually doesn't have to grow
+     */
+    private volatile int lengthHint = 16;
+
+    Formatter(Class<?> type) {
+      name = type.getName();
+      final var prefixes = new ArrayList<String>();
+      final var appenders = new ArrayList<MethodHandle>();
+      var cls = type;
+      while (cls != null && cls != Object.class) {
+        for (final var field : cls.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers())) {
+            prefixes.add((prefixes.isEmpty() ? "" : ", ") + field.getName() + '=');
+            appenders.add(appender(field));
+          }
+        }
+        cls = cls.getSuperclass();
+      }
+      this.prefixes = prefixes.toArray(new String[0]);
+      this.appenders = appenders.toArray(new MethodHandle[0]);
+    }
+
+    String format(Object o) {
+      final var sb = new StringBuilder(lengthHint);
+      sb.append(name).append('[');
+      for (int i = 0; i < appenders.length; i++) {
+        sb.append(prefixes[i]);
+        try {
+          appenders[i].invokeExact(sb, o);
+        } catch (RuntimeException | Error e) {
+          throw e; // Such as from a field's toString
+        } catch (Throwable e) {
+          throw new RuntimeException(e);
+        }
+      }
+      sb.append(']');
+      lengthHint = sb.length();
+      return sb.toString();
+    }
+  }
+
+  private static final ClassValue<Formatter> FORMATTERS = new ClassValue<>() {
+    @Override
+    protected Formatter computeValue(Class<?> type) {
+      return new Formatter(type);
+    }
+  };
+
+  private static final MethodType APPENDER_TYPE =
+      MethodType.methodType(void.class, StringBuilder.class, Object.class);
+
   /**
    * Returns a string with all fields of the object, including inherited ones.
    * Format is the follwing: Class[field1=value1, field2=value2, ..., fieldn = valuen]
@@ -18,30 +88,31 @@ public abstract class Stringer {
    * @return A string with the given object's data
    */
   public static String toString(Object o) {
-    final var sb = new StringBuffer(o.getClass().getName());
-    sb.append('[');
-
-    var cls = o.getClass();
-    while (cls != null && cls != Object.class) {
-      toString(cls.getDeclaredFields(), o, sb);
-      cls = cls.getSuperclass();
-    }
-    sb.delete(sb.length() - ", ".length(), sb.length()); // Remove last comma
-    sb.append(']');
-    return sb.toString();
+    return FORMATTERS.get(o.getClass()).format(o);
   }
 
-  private static void toString(Field[] fields, Object o, StringBuffer sb) {
-    for (int i = 0; i < fields.length; i++) {
-      if (!Modifier.isStatic(fields[i].getModifiers())) {
-        fields[i].setAccessible(true);
-        try {
-          sb.append(String.format("%s=%s", fields[i].getName(), fields[i].get(o)));
-        } catch (IllegalArgumentException | IllegalAccessException e) {
-          e.printStackTrace();
-        }
-        sb.append(", ");
+  /**
+   * Returns a handle that appends a field's value, without boxing primitives
+   */
+  private static MethodHandle appender(Field field) {
+    try {
+      final var lookup = MethodHandles.lookup();
+      final var getter = MethodHandles.privateLookupIn(field.getDeclaringClass(), lookup)
+          .unreflectGetter(field);
+      var type = field.getType();
+      if (type == byte.class || type == short.class) {
+        type = int.class;
+      } else if (!type.isPrimitive()) {
+        type = Object.class;
       }
+      final var append = lookup.findVirtual(StringBuilder.class, "append",
+          MethodType.methodType(StringBuilder.class, type));
+      return MethodHandles.filterArguments(append, 1, getter.asType(
+          MethodType.methodType(type, Object.class))).asType(APPENDER_TYPE);
+    } catch (IllegalAccessException | NoSuchMethodException e) {
+      // Fields of classes in modules that aren't open to this one can't be read
+      e.printStackTrace();
+      return MethodHandles.empty(APPENDER_TYPE);
     }
   }
 
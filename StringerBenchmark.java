@@ -0,0 +1,87 @@
+package swinglib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+
+/**
+ * Compares how long <code>Stringer.toString</code> takes and how much it allocates
+ * with the reflective version it replaced, for the pairs and triplets that
+ * screens log.
+ * @author milind
+ */
+final class StringerBenchmark {
+
+  private static final int CALLS = 1_000_000;
+  private static final int RUNS = 5;
+
+  private StringerBenchmark() {}
+
+  /**
+   * Looks up and formats every field on every call, the way <code>Stringer</code> used to
+   */
+  private static String reflective(Object o) {
+    final var sb = new StringBuffer(o.getClass().getName());
+    sb.append('[');
+
+    var cls = o.getClass();
+    while (cls != null && cls != Object.class) {
+      for (final Field field : cls.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          field.setAccessible(true);
+          try {
+            sb.append(String.format("%s=%s", field.getName(), field.get(o)));
+          } catch (IllegalArgumentException | IllegalAccessException e) {
+            e.printStackTrace();
+          }
+          sb.append(", ");
+        }
+      }
+      cls = cls.getSuperclass();
+    }
+    sb.delete(sb.length() - ", ".length(), sb.length());
+    sb.append(']');
+    return sb.toString();
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getCurrentThreadAllocatedBytes();
+  }
+
+  private static void run(String name, Object o, Function<Object, String> toString) {
+    double best = Double.MAX_VALUE;
+    long bytes = 0;
+    int length = 0;
+    for (int run = 0; run < RUNS; run++) {
+      final long before = allocatedBytes();
+      final long start = System.nanoTime();
+      for (int i = 0; i < CALLS; i++) {
+        length += toString.apply(o).length();
+      }
+      best = Math.min(best, (System.nanoTime() - start) / (double) CALLS);
+      bytes = (allocatedBytes() - before) / CALLS;
+    }
+    // Printing the lengths keeps the strings from being optimized away
+    System.out.printf("%-22s %,8.1f ns/call %,6d bytes/call (%d chars)%n", name, best, bytes,
+        length / (RUNS * CALLS));
+  }
+
+  /**
+   * Runs the benchmark
+   * @param args Not using command line args
+   */
+  public static void main(String[] args) {
+    final var pair = new Pair<>("Score", 42);
+    final var triplet = new Triplet<>("Player", 7, 0.5);
+    if (!reflective(triplet).equals(Stringer.toString(triplet))) {
+      throw new AssertionError(Stringer.toString(triplet));
+    }
+    run("Reflective, pair", pair, StringerBenchmark::reflective);
+    run("Stringer, pair", pair, Stringer::toString);
+    run("Reflective, triplet", triplet, StringerBenchmark::reflective);
+    run("Stringer, triplet", triplet, Stringer::toString);
+  }
+
+}
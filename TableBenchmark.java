@@ -0,0 +1,101 @@
+package swinglib;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+
+/**
+ * Compares how fast rows can be added to a <code>DefaultTableModel</code> and a
+ * <code>BulkTableModel</code>, and how much memory each row takes.
+ * Rows have a name, an age, and a score, like the rows in <code>Example</code>.
+ * The <code>DefaultTableModel</code> is filled on the EDT, since it can't be used from other
+ * threads, and the <code>BulkTableModel</code> from a producer thread, timed until every
+ * row has been published on the EDT.
+ * Can be run headless with <code>-Djava.awt.headless=true</code>.
+ * @author milind
+ */
+final class TableBenchmark {
+
+  private static final int ROWS = 100_000;
+  private static final int BATCH_SIZE = 1_000;
+  private static final int RUNS = 5;
+
+  private TableBenchmark() {}
+
+  /**
+   * Adds rows one at a time on the EDT, the way <code>Example</code> does
+   */
+  private static TableModel fillDefault() throws Exception {
+    final var model = new DefaultTableModel(new Object[] {"Name", "Age", "Score"}, 0);
+    SwingUtilities.invokeAndWait(() -> {
+      new JTable(model);
+      for (int i = 0; i < ROWS; i++) {
+        model.addRow(new Object[] {name(i), i % 100, i * 0.5});
+      }
+    });
+    return model;
+  }
+
+  /**
+   * Adds rows in batches from this thread to a model with unboxed number columns
+   */
+  private static TableModel fillBulk() throws Exception {
+    final var model = new BulkTableModel(new Object[] {"Name", "Age", "Score"},
+        new Class<?>[] {String.class, int.class, double.class});
+    SwingUtilities.invokeAndWait(() -> new JTable(model));
+    final var batch = new ArrayList<Object[]>(BATCH_SIZE);
+    for (int i = 0; i < ROWS; i++) {
+      batch.add(new Object[] {name(i), i % 100, i * 0.5});
+      if (batch.size() == BATCH_SIZE) {
+        model.addRows(batch);
+        batch.clear();
+      }
+    }
+    model.addRows(batch);
+    // Wait for the rows to be published
+    SwingUtilities.invokeAndWait(() -> {});
+    return model;
+  }
+
+  private static String name(int i) {
+    return "Person " + i;
+  }
+
+  private static long usedMemory() {
+    final var runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void run(String name, Callable<TableModel> fill) throws Exception {
+    TableModel model = null;
+    double best = Double.MAX_VALUE;
+    long bytes = 0;
+    for (int run = 0; run < RUNS; run++) {
+      model = null;
+      final long before = usedMemory();
+      final long start = System.nanoTime();
+      model = fill.call();
+      best = Math.min(best, (System.nanoTime() - start) / 1e9);
+      bytes = usedMemory() - before;
+    }
+    // Names are created for both models, so they're counted in both
+    System.out.printf("%-18s %,12.0f rows/sec %,8d bytes/row%n", name, ROWS / best,
+        bytes / model.getRowCount());
+  }
+
+  /**
+   * Runs the benchmark
+   * @param args Not using command line args
+   */
+  public static void main(String[] args) throws Exception {
+    run("DefaultTableModel", TableBenchmark::fillDefault);
+    run("BulkTableModel", TableBenchmark::fillBulk);
+  }
+
+}
@@ -0,0 +1,111 @@
+package swinglib;
+
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Measures the width of text, caching the widths of recently measured strings
+ * so that laying out and painting the same text again doesn't measure it again.
+ * Widths are the same as <code>FontMetrics.stringWidth</code> gives for the same
+ * font and rendering settings. Can be used from any thread.
+ * @author milind
+ */
+public final class TextMetrics {
+
+  /**
+   * Most widths to keep. The least recently used ones are dropped first.
+   */
+  private static final int MAX_ENTRIES = 4096;
+  /**
+   * Rendering settings of images and components drawn without text antialiasing
+   */
+  private static final FontRenderContext DEFAULT_FRC = new FontRenderContext(null, false, false);
+
+  private static final class Key {
+    final Font font;
+    final FontRenderContext frc;
+    final String text;
+    final int hash;
+
+    Key(Font font, FontRenderContext frc, String text) {
+      this.font = font;
+      this.frc = frc;
+      this.text = text;
+      hash = (((font.hashCode() * 31) + frc.hashCode()) * 31) + text.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return (o instanceof Key) && font.equals(((Key) o).font) && frc.equals(((Key) o).frc)
+          && text.equals(((Key) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  // Guarded by itself, since getting an entry reorders it
+  private static final LinkedHashMap<Key, Integer> widths =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+
+  private TextMetrics() {}
+
+  /**
+   * Returns the width of a string drawn without text antialiasing
+   * @param font Font of the string
+   * @param s String to measure
+   * @return Width of the string in pixels
+   */
+  public static int stringWidth(Font font, String s) {
+    return stringWidth(font, DEFAULT_FRC, s);
+  }
+
+  /**
+   * Returns the width of a string drawn with a graphics' current font and settings
+   * @param g Graphics the string is drawn with
+   * @param s String to measure
+   * @return Width of the string in pixels
+   */
+  public static int stringWidth(Graphics g, String s) {
+    final var frc = (g instanceof Graphics2D) ? ((Graphics2D) g).getFontRenderContext()
+                                              : DEFAULT_FRC;
+    return stringWidth(g.getFont(), frc, s);
+  }
+
+  /**
+   * Returns the width of a string drawn with the given rendering settings
+   * @param font Font of the string
+   * @param frc Rendering settings the string is drawn with
+   * @param s String to measure
+   * @return Width of the string in pixels
+   */
+  public static int stringWidth(Font font, FontRenderContext frc, String s) {
+    final var key = new Key(font, frc, s);
+    Integer width;
+    synchronized (widths) {
+      width = widths.get(key);
+    }
+    if (width == null) {
+      // Measure without holding the lock, since it's much slower than looking up
+      width = (int) (0.5 + font.getStringBounds(s, frc).getWidth());
+      synchronized (widths) {
+        widths.put(key, width);
+      }
+    }
+    return width;
+  }
+
+}